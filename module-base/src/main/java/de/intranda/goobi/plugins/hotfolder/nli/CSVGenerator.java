@@ -1,80 +1,61 @@
 package de.intranda.goobi.plugins.hotfolder.nli;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
 
 import org.apache.commons.lang3.StringUtils;
 
-import com.google.gson.Gson;
+import com.fasterxml.jackson.core.JsonProcessingException;
 
 import de.intranda.goobi.plugins.hotfolder.nli.model.log.GUIImportResult;
-import de.sub.goobi.helper.StorageProvider;
-import de.sub.goobi.helper.StorageProviderInterface;
-import lombok.Getter;
+import de.intranda.goobi.plugins.hotfolder.nli.model.log.RunResultsStore;
 import lombok.extern.log4j.Log4j2;
 
+/**
+ * Writes the results of all stored runs as CSV (RFC 4180) to an output stream, e.g. the HTTP response. The runs are read one result at a time, so
+ * neither the results nor the CSV are kept in memory.
+ */
 @Log4j2
 public class CSVGenerator {
-    private static final StorageProviderInterface storageProvider = StorageProvider.getInstance();
-    private static final Gson gson = new Gson();
-    private String jsonFileName;
-    private Path hotfolderPath;
-    @Getter
-    private Path csvFilePath;
+    public static final String CSV_FILENAME = "lastRunResults.csv";
 
-    public CSVGenerator(Path hotfolderPath, String jsonFileName) {
-        this.hotfolderPath = hotfolderPath;
-        this.jsonFileName = jsonFileName;
-        this.csvFilePath = createCSVFilePath();
-    }
-
-    private Path createCSVFilePath() {
-        String csvName = jsonFileName.replaceAll("\\..*$", ".csv");
-        return hotfolderPath.resolve(csvName);
-    }
-
-    public void generateFile() {
-        List<GUIImportResult[]> importResults = getImportResults();
-
-        String header = "Time,Process,Result\n";
-        StringBuilder contentBuilder = new StringBuilder(header);
-        for (GUIImportResult[] importResult : importResults) {
-            String importResultString = generateImportResultString(importResult);
-            contentBuilder.append(importResultString);
-        }
-
-        String content = contentBuilder.toString();
-
-        // TODO: How to use StorageProviderInterface to replace Files in the following case?
-        try (OutputStream out = Files.newOutputStream(csvFilePath, StandardOpenOption.TRUNCATE_EXISTING,
-                StandardOpenOption.CREATE)) {
+    private static final String LINE_SEPARATOR = "\r\n";
 
-            out.write(content.getBytes());
+    private final RunResultsStore runResultsStore;
 
-        } catch (IOException e) {
-            log.error("Error trying to save the csv file: {}", e);
-        }
+    public CSVGenerator(RunResultsStore runResultsStore) {
+        this.runResultsStore = runResultsStore;
     }
 
-    private String generateImportResultString(GUIImportResult[] importResult) {
-        StringBuilder resultBuilder = new StringBuilder();
-        for (GUIImportResult result : importResult) {
-            resultBuilder.append(generateEntryString(result));
+    /**
+     * write the CSV to the given stream, which is flushed but not closed
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeCsv(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("Time,Process,Result");
+        writer.write(LINE_SEPARATOR);
+        // newest run first
+        for (RunResultsStore.RunInfo run : runResultsStore.getRuns()) {
+            try {
+                runResultsStore.readRun(run, result -> writeEntry(writer, result));
+            } catch (NoSuchFileException | JsonProcessingException e) {
+                // the run was dropped by an import run in the meantime or its segment is damaged, errors writing the stream are passed on
+                log.debug("Skipping run {} in the csv file: {}", run.getId(), e.toString());
+            }
         }
-
-        return resultBuilder.toString();
+        writer.flush();
     }
 
-    private String generateEntryString(GUIImportResult result) {
-        StringBuilder entryBuilder = new StringBuilder();
+    private void writeEntry(Writer writer, GUIImportResult result) throws IOException {
         String timestamp = result.getTimestamp();
-        String fileName = result.getImportFileName();
         String errorMessage = result.getErrorMessage();
         // handle blank values
         if (StringUtils.isBlank(timestamp)) {
@@ -84,48 +65,25 @@ public class CSVGenerator {
             errorMessage = "ok";
         }
         // timestamp, fileName, errorMessage
-        entryBuilder.append(timestamp);
-        entryBuilder.append(",");
-        entryBuilder.append(fileName);
-        entryBuilder.append(",");
-        entryBuilder.append(errorMessage);
-        entryBuilder.append("\n");
-
-        return entryBuilder.toString();
-    }
-
-    private List<GUIImportResult[]> getImportResults() {
-        String resultsString = prepareResultsString();
-        List<GUIImportResult[]> importResults = new ArrayList<>();
-
-        if (StringUtils.isNotBlank(resultsString)) {
-            // resultsString has form [{},{}],\n[{},{}],\n[{},{}]
-            String[] results = resultsString.split(",\\n");
-            for (String result : results) {
-                GUIImportResult[] importResult = gson.fromJson(result, GUIImportResult[].class);
-                importResults.add(importResult);
-            }
-        }
-
-        return importResults;
+        writer.write(quote(timestamp));
+        writer.write(",");
+        writer.write(quote(result.getImportFileName()));
+        writer.write(",");
+        writer.write(quote(errorMessage));
+        writer.write(LINE_SEPARATOR);
     }
 
-    private String prepareResultsString() {
-        String resultsString = "";
-        Path resultsJsonPath = hotfolderPath.resolve(jsonFileName);
-        try (InputStream inputStream = storageProvider.newInputStream(resultsJsonPath)) {
-            resultsString = new String(inputStream.readAllBytes());
-        } catch (IOException e) {
-            log.error("IOException caught while trying to read the file content from: " + resultsJsonPath);
+    /**
+     * quote a field if it contains a separator, a quote or a line break, doubling the quotes inside
+     */
+    private static String quote(String value) {
+        if (value == null) {
+            return "";
         }
-
-        // resultsString has form [[{},{}],\n[{},{}],\n[{},{}]]
-        if (StringUtils.isNotBlank(resultsString)) {
-            // remove the first [ and the last ]
-            resultsString = resultsString.substring(resultsString.indexOf("[") + 1, resultsString.lastIndexOf("]"));
+        if (StringUtils.containsAny(value, ',', '"', '\r', '\n')) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
         }
-
-        return resultsString;
+        return value;
     }
 
 }
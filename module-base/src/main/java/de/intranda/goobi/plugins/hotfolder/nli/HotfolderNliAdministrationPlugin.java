@@ -5,7 +5,6 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
@@ -16,21 +15,24 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
 
 import org.goobi.production.enums.PluginType;
 import org.goobi.production.plugin.interfaces.IAdministrationPlugin;
 
 import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
+import de.intranda.goobi.plugins.hotfolder.nli.model.AsyncStepCloser;
+import de.intranda.goobi.plugins.hotfolder.nli.model.config.HotfolderPluginConfig;
+import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.RunCoordinator;
 import de.intranda.goobi.plugins.hotfolder.nli.model.log.GUIImportResult;
 import de.intranda.goobi.plugins.hotfolder.nli.model.log.QuartzJobLog;
+import de.intranda.goobi.plugins.hotfolder.nli.model.log.RunResultsStore;
 import de.sub.goobi.config.ConfigPlugins;
-import de.sub.goobi.helper.StorageProvider;
-import de.sub.goobi.helper.StorageProviderInterface;
 import jakarta.faces.context.FacesContext;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
@@ -43,16 +45,13 @@ import net.xeoh.plugins.base.annotations.PluginImplementation;
 @PluginImplementation
 @Log4j2
 public class HotfolderNliAdministrationPlugin implements IAdministrationPlugin {
-    private static ObjectMapper om = new ObjectMapper();
 
-    private static TypeReference<List<List<GUIImportResult>>> typeReferenceOfList = new TypeReference<>() {
-    };
-
-    private static StorageProviderInterface storageProvider = StorageProvider.getInstance();
+    private Path hotfolderPath;
 
-    private static final String RESULTS_JSON_FILENAME = "lastRunResults.json";
+    private RunResultsStore runResultsStore;
 
-    private Path hotfolderPath;
+    // reads the leases of the running imports and the pause flag
+    private RunCoordinator runCoordinator;
 
     @Getter
     private int logNumber = 0;
@@ -62,16 +61,26 @@ public class HotfolderNliAdministrationPlugin implements IAdministrationPlugin {
     @Getter
     private String title = "intranda_administration_hotfolder_nli";
 
-    // information about the last run
+    // number of results of a folder that are shown at once
+    private static final int FOLDER_PAGE_SIZE = 50;
+
+    // information about the selected run, grouped by folder
     private Map<String, List<GUIImportResult>> lastRunInfo;
 
-    @Getter
-    private List<List<GUIImportResult>> listOfResults = new ArrayList<>();
+    // index of the stored runs, the newest first
+    private List<RunResultsStore.RunInfo> runs = new ArrayList<>();
+
+    // id of the run that lastRunInfo was created from
+    private String selectedRunId;
 
     // controls whether or not to show folders
     @Getter
     private Map<String, Boolean> showFolders = new HashMap<>();
 
+    // the page of each folder that is currently shown, starting with 0
+    @Getter
+    private Map<String, Integer> folderPages = new HashMap<>();
+
     // the instant that the field lastRunInfo was modified
     private Instant lastRunInfoModified;
     // the instant that the field lastRunInfo was loaded
@@ -92,44 +101,56 @@ public class HotfolderNliAdministrationPlugin implements IAdministrationPlugin {
      */
     public HotfolderNliAdministrationPlugin() {
         hotfolderPath = Paths.get(ConfigPlugins.getPluginConfig(title).getString("hotfolderPath"));
+        runResultsStore = new RunResultsStore(hotfolderPath);
+        runCoordinator = new RunCoordinator(hotfolderPath, Duration.ofSeconds(new HotfolderPluginConfig(title).getLeaseTimeout()));
     }
 
     public boolean isPaused() {
-        Path pauseFile = hotfolderPath.resolve("hotfolder_pause.lock");
-        return storageProvider.isFileExists(pauseFile);
+        return runCoordinator.isPaused();
     }
 
+    /**
+     * whether an import is running, runs that crashed without releasing their lease are not counted once the lease expired
+     */
     public boolean isRunning() {
-        Path lockFile = hotfolderPath.resolve("hotfolder_running.lock");
-        return storageProvider.isFileExists(lockFile);
+        return !runCoordinator.getRunningImports().isEmpty();
     }
 
-    public Date getStartedRunningAt() throws IOException {
-        Path lockFile = hotfolderPath.resolve("hotfolder_running.lock");
-        return new Date(storageProvider.getLastModifiedDate(lockFile));
+    public Date getStartedRunningAt() {
+        return new Date(getRunStart());
     }
 
-    public String getRunningSince() throws IOException {
-        Path lockFile = hotfolderPath.resolve("hotfolder_running.lock");
-        Instant modifiedInstant = Instant.ofEpochMilli(storageProvider.getLastModifiedDate(lockFile));
-        Duration runningTime = Duration.between(modifiedInstant, Instant.now());
+    public String getRunningSince() {
+        Duration runningTime = Duration.between(Instant.ofEpochMilli(getRunStart()), Instant.now());
         long s = runningTime.getSeconds();
 
         return String.format("%d:%02d:%02d", s / 3600, (s % 3600) / 60, (s % 60));
     }
 
+    /**
+     * number of new processes whose first step is still waiting to be closed in the background
+     */
+    public int getNumberOfPendingStepCloses() {
+        return AsyncStepCloser.getNumberOfPendingSteps();
+    }
+
+    /**
+     * start of the earliest running import, the current time if no import is running
+     */
+    private long getRunStart() {
+        return runCoordinator.getRunningImports()
+                .stream()
+                .mapToLong(RunCoordinator.LeaseInfo::getStarted)
+                .min()
+                .orElse(System.currentTimeMillis());
+    }
+
     public void pauseWork() throws IOException {
-        Path pauseFile = hotfolderPath.resolve("hotfolder_pause.lock");
-        if (!storageProvider.isFileExists(pauseFile)) {
-            Files.createFile(pauseFile);
-        }
+        runCoordinator.pause();
     }
 
     public void resumeWork() throws IOException {
-        Path pauseFile = hotfolderPath.resolve("hotfolder_pause.lock");
-        if (storageProvider.isFileExists(pauseFile)) {
-            storageProvider.deleteFile(pauseFile);
-        }
+        runCoordinator.resume();
     }
 
     public Map<String, List<GUIImportResult>> getLastRunInfo() throws JsonParseException, JsonMappingException, IOException {
@@ -146,18 +167,24 @@ public class HotfolderNliAdministrationPlugin implements IAdministrationPlugin {
 
     private void loadLastRunInfo() throws JsonParseException, JsonMappingException, IOException {
         lastRunInfoLoadTime = Instant.now();
-        Path lastRunInfoPath = hotfolderPath.resolve(RESULTS_JSON_FILENAME);
-        if (!storageProvider.isFileExists(lastRunInfoPath)) {
-            lastRunInfo = new LinkedHashMap<>();
-            return;
-        }
 
-        updateListOfResults(lastRunInfoPath);
+        updateListOfRuns();
+        // old runs may have been dropped in the meantime
+        logNumber = Math.min(logNumber, Math.max(runs.size() - 1, 0));
 
-        List<GUIImportResult> results = listOfResults.size() > 0 ? listOfResults.get(logNumber) : new ArrayList<>();
+        RunResultsStore.RunInfo run = runs.isEmpty() ? null : runs.get(logNumber);
+        String runId = run != null ? run.getId() : null;
+        if (lastRunInfo != null && Objects.equals(runId, selectedRunId)) {
+            // segments never change once written, so the selected run is still up to date
+            return;
+        }
+        // only the selected run is read from the store
+        List<GUIImportResult> results = run != null ? runResultsStore.readRun(run) : new ArrayList<>();
+        selectedRunId = runId;
 
         // clearing up old entries and reload from the json file
         lastRunInfo = new LinkedHashMap<>();
+        folderPages.clear();
 
         // add all GUI results accordingly
         for (GUIImportResult guiResult : results) {
@@ -180,29 +207,60 @@ public class HotfolderNliAdministrationPlugin implements IAdministrationPlugin {
         }
     }
 
-    private void updateListOfResults(Path lastRunInfoPath) throws IOException {
-        // the instant of the last modifications made to the json file, signifying modifications in some hotfolder
-        Instant lastModified = Instant.ofEpochMilli(storageProvider.getLastModifiedDate(lastRunInfoPath));
+    private void updateListOfRuns() {
+        // the instant of the last modifications made to the run results, signifying modifications in some hotfolder
+        Instant lastModified = Instant.ofEpochMilli(runResultsStore.getLastModified());
 
-        // check if any modifications happened after lastRunInfoModified, if so then the field lastRunInfo should be updated
+        // check if any modifications happened after lastRunInfoModified, if so then the index of the runs should be updated
         if (lastRunInfoModified == null || lastModified.isAfter(lastRunInfoModified)) {
-            try (InputStream src = storageProvider.newInputStream(lastRunInfoPath)) {
-                listOfResults = om.readValue(src, typeReferenceOfList);
-            } catch (Exception e) {
-                // the log file is still empty
-                log.debug("Error while trying to update the list of results: {}", e.getMessage());
-                listOfResults = new ArrayList<>();
-            }
+            runs = runResultsStore.getRuns();
             lastRunInfoModified = lastModified;
         }
     }
 
+    public int getNumberOfRuns() {
+        return runs.size();
+    }
+
+    /**
+     * get the results of a folder that are shown on its current page
+     *
+     * @param folder the folder as used in lastRunInfo
+     * @return at most FOLDER_PAGE_SIZE results
+     */
+    public List<GUIImportResult> getFolderPage(String folder) {
+        List<GUIImportResult> results = lastRunInfo != null ? lastRunInfo.get(folder) : null;
+        if (results == null) {
+            return new ArrayList<>();
+        }
+        int from = getFolderPageNumber(folder) * FOLDER_PAGE_SIZE;
+        return results.subList(from, Math.min(from + FOLDER_PAGE_SIZE, results.size()));
+    }
+
+    public int getFolderPageNumber(String folder) {
+        return Math.min(folderPages.getOrDefault(folder, 0), getNumberOfFolderPages(folder) - 1);
+    }
+
+    public int getNumberOfFolderPages(String folder) {
+        List<GUIImportResult> results = lastRunInfo != null ? lastRunInfo.get(folder) : null;
+        int size = results != null ? results.size() : 0;
+        return Math.max((size + FOLDER_PAGE_SIZE - 1) / FOLDER_PAGE_SIZE, 1);
+    }
+
+    public void nextFolderPage(String folder) {
+        folderPages.put(folder, Math.min(getFolderPageNumber(folder) + 1, getNumberOfFolderPages(folder) - 1));
+    }
+
+    public void previousFolderPage(String folder) {
+        folderPages.put(folder, Math.max(getFolderPageNumber(folder) - 1, 0));
+    }
+
     public void toggleShowFolder(String folder) {
         showFolders.put(folder, !showFolders.get(folder));
     }
 
     public void nextLog() {
-        logNumber = Math.min(logNumber + 1, Math.max(listOfResults.size() - 1, 0));
+        logNumber = Math.min(logNumber + 1, Math.max(runs.size() - 1, 0));
         numberUpdated = true;
     }
 
@@ -212,11 +270,31 @@ public class HotfolderNliAdministrationPlugin implements IAdministrationPlugin {
     }
 
     public void generateCSV() {
-        CSVGenerator generator = new CSVGenerator(hotfolderPath, RESULTS_JSON_FILENAME);
-        // generate csv file
-        generator.generateFile();
-        // download the generated csv file
-        downloadFile(generator.getCsvFilePath());
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        HttpServletRequest request = (HttpServletRequest) facesContext.getExternalContext().getRequest();
+        HttpServletResponse response = (HttpServletResponse) facesContext.getExternalContext().getResponse();
+
+        // compress the csv file if the browser supports it, it is decompressed transparently
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        response.reset();
+        response.setHeader("Content-Type", "text/csv; charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment;filename=" + CSVGenerator.CSV_FILENAME);
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+        }
+
+        // stream the csv file directly into the response
+        try (OutputStream responseOutputStream = response.getOutputStream();
+                OutputStream out = gzip ? new GZIPOutputStream(responseOutputStream) : responseOutputStream) {
+            new CSVGenerator(runResultsStore).writeCsv(out);
+        } catch (IOException e) {
+            // e.g. the download was cancelled
+            log.error("IOException caught while trying to download the csv file: {}", e.toString());
+        }
+
+        facesContext.responseComplete();
     }
 
     public void generateQuartzErrorsLog() {
@@ -1,34 +1,40 @@
 package de.intranda.goobi.plugins.hotfolder.nli;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.time.Duration;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
-import org.apache.commons.lang3.StringUtils;
 import org.goobi.production.flow.jobs.AbstractGoobiJob;
 import org.goobi.production.importer.ImportObject;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.gson.Gson;
-
 import de.intranda.goobi.plugins.hotfolder.nli.model.NLIHotfolderImport;
+import de.intranda.goobi.plugins.hotfolder.nli.model.TemplateCache;
 import de.intranda.goobi.plugins.hotfolder.nli.model.config.HotfolderPluginConfig;
 import de.intranda.goobi.plugins.hotfolder.nli.model.exceptions.ImportException;
 import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.HotfolderFolder;
 import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.HotfolderParser;
+import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.HotfolderWatcher;
+import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.RunCoordinator;
+import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.RunPlanner;
+import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.ShardAssignment;
 import de.intranda.goobi.plugins.hotfolder.nli.model.log.GUIImportResult;
+import de.intranda.goobi.plugins.hotfolder.nli.model.log.ImportDurationStatistics;
 import de.intranda.goobi.plugins.hotfolder.nli.model.log.QuartzJobLog;
+import de.intranda.goobi.plugins.hotfolder.nli.model.log.RunResultsStore;
 import de.sub.goobi.config.ConfigurationHelper;
 import de.sub.goobi.helper.StorageProvider;
 import de.sub.goobi.helper.StorageProviderInterface;
@@ -40,12 +46,21 @@ public class HotfolderNLIQuartzJob extends AbstractGoobiJob {
     private static final String PLUGIN_NAME = "intranda_administration_hotfolder_nli";
     private static StorageProviderInterface storageProvider = StorageProvider.getInstance();
 
-    private static final String RESULTS_JSON_FILENAME = "lastRunResults.json";
-
     private HotfolderPluginConfig config = new HotfolderPluginConfig(PLUGIN_NAME);
 
     private HotfolderParser hotfolderParser = new HotfolderParser();
 
+    // process templates and rulesets used during a single import run
+    private final TemplateCache templateCache = new TemplateCache();
+
+    // prevents scheduled runs and runs started by the watcher from overlapping
+    private static final ReentrantLock RUN_LOCK = new ReentrantLock();
+    // watches the hotfolder across runs if useWatchService is enabled
+    private static HotfolderWatcher watcher;
+    // keeps this node a member of the nodes that share the hotfolder if sharding is enabled
+    private static RunCoordinator membershipCoordinator;
+    private static RunCoordinator.Lease membershipLease;
+
     // only used to test QuartzJobLog
     private static int counter = 0;
 
@@ -73,30 +88,105 @@ public class HotfolderNLIQuartzJob extends AbstractGoobiJob {
             return;
         }
 
-        Path pauseFile = config.getHotfolderPath().resolve("hotfolder_pause.lock");
-        if (storageProvider.isFileExists(pauseFile)) {
-            log.info("NLI hotfolder is paused - not running");
+        if (!config.isUseWatchService()) {
+            stopWatcher();
+            runImport(() -> this.hotfolderParser.getImportFolders(config.getHotfolderPath(), config));
             return;
         }
 
-        Path lockFile = config.getHotfolderPath().resolve("hotfolder_running.lock");
-        if (storageProvider.isFileExists(lockFile)) {
-            log.info("NLI hotfolder is already running - not running a second time in parallel");
+        // in event mode the watcher imports changed folders, scheduled runs are only needed as a fallback
+        HotfolderWatcher hotfolderWatcher = getWatcher();
+        if (hotfolderWatcher != null && !hotfolderWatcher.isFullScanDue()) {
+            log.debug("NLI hotfolder: Hotfolder is watched, no full scan due");
             return;
         }
+        long scanStart = System.currentTimeMillis();
+        if (runImport(() -> this.hotfolderParser.getImportFolders(config.getHotfolderPath(), config)) && hotfolderWatcher != null) {
+            hotfolderWatcher.markFullScan(scanStart);
+        }
+    }
+
+    /**
+     * import the project folders reported by the HotfolderWatcher
+     * 
+     * @param projectFolders project folders that remained unchanged for minutesOfInactivity
+     * @return false if the import could not be started, so that the watcher offers the folders again later
+     */
+    private boolean importWatchedFolders(Set<Path> projectFolders) {
+        log.info("NLI hotfolder: Importing " + projectFolders.size() + " changed project folders");
+        return runImport(() -> this.hotfolderParser.getImportFolders(projectFolders, config));
+    }
+
+    /**
+     * import the given folders unless the hotfolder is paused or another import is running
+     * 
+     * @param importFolderSupplier provides the folders to import once the lock is acquired
+     * @return true if the import run took place
+     */
+    private boolean runImport(Callable<List<HotfolderFolder>> importFolderSupplier) {
+        RunCoordinator coordinator = new RunCoordinator(config.getHotfolderPath(), Duration.ofSeconds(config.getLeaseTimeout()));
+        if (coordinator.isPaused()) {
+            log.info("NLI hotfolder is paused - not running");
+            return false;
+        }
+
+        // scheduled runs and runs started by the watcher may overlap within this node
+        if (!RUN_LOCK.tryLock()) {
+            log.info("NLI hotfolder is already running - not running a second time in parallel");
+            return false;
+        }
+        try {
+            ShardAssignment shards = null;
+            if (config.isSharding()) {
+                shards = getShardAssignment();
+                if (shards == null) {
+                    return false;
+                }
+            } else {
+                leaveShards();
+            }
+            // other nodes may import from the same hotfolder, the lease is taken over if the run that holds it stopped renewing it
+            RunCoordinator.Lease lease = coordinator.tryAcquireRun(!config.isClaimFolders() && !config.isSharding());
+            if (lease == null) {
+                log.info("NLI hotfolder is already running - not running a second time in parallel");
+                return false;
+            }
+            ShardAssignment ownShards = shards;
+            Callable<List<HotfolderFolder>> folderSupplier = ownShards == null ? importFolderSupplier
+                    : () -> ownShards.filter(importFolderSupplier.call(), RunCoordinator.getNodeName());
+            runImport(folderSupplier, lease, config.isClaimFolders() ? coordinator : null);
+            return true;
+        } catch (IOException e) {
+            log.error("NLI hotfolder: Unable to acquire the run lease: {}", e.toString());
+            return false;
+        } finally {
+            RUN_LOCK.unlock();
+        }
+    }
 
+    private void runImport(Callable<List<HotfolderFolder>> importFolderSupplier, RunCoordinator.Lease lease, RunCoordinator claimCoordinator) {
         // prepare QuartzJobLog instance for recording QuartzJob errors and periods where there is no file to upload
         QuartzJobLog quartzJobLog = QuartzJobLog.getInstance(config.getHotfolderPath());
         List<GUIImportResult> guiResults = Collections.emptyList();
         try {
-            // set lock
-            Files.createFile(lockFile);
             log.info("NLI hotfolder: Starting import run");
+            // templates and rulesets may have changed since the last run
+            templateCache.clear();
+
+            List<HotfolderFolder> importFolders = importFolderSupplier.call();
 
-            List<HotfolderFolder> importFolders = this.hotfolderParser.getImportFolders(config.getHotfolderPath(), config);
+            // order the folders and predict their durations if configured
+            RunPlanner planner = null;
+            if (RunPlanner.isEnabled(config)) {
+                planner = new RunPlanner(config, ImportDurationStatistics.load(config.getHotfolderPath()));
+                importFolders = planner.plan(importFolders);
+            }
 
             // create an ImportObject instance for every folder in the importFolders
-            List<ImportObject> imports = createProcesses(importFolders);
+            List<ImportObject> imports = createProcesses(importFolders, planner, claimCoordinator, lease);
+            if (planner != null) {
+                savePlannerStatistics(planner);
+            }
             log.info("NLI hotfolder: Created processes. " + imports.size() + "import objects were created");
 
             guiResults = imports.stream()
@@ -117,183 +207,245 @@ public class HotfolderNLIQuartzJob extends AbstractGoobiJob {
                 // ending an existing period where no file is to upload, no harm if no period has been started yet
                 quartzJobLog.markPeriodEnd();
 
-                int numberSetting = config.isUseTimeDifference() ? config.getAllowedTimeDifference() : config.getAllowedNumberOfLogs();
-                updateRunsLog(config.getHotfolderPath(), guiResults, numberSetting);
+                updateRunsLog(config.getHotfolderPath(), guiResults);
             } else {
                 // starting a new period where no file is to upload, no harm if the period has already been started earlier
                 quartzJobLog.markPeriodStart();
                 log.debug("guiResults is empty, skipping...");
             }
 
-            log.info("NLI hotfolder: Done with import run. Deleting lockFile");
+            log.info("NLI hotfolder: Done with import run. Releasing the run lease");
             try {
-                if (storageProvider.isFileExists(lockFile)) {
-                    storageProvider.deleteFile(lockFile);
-                }
+                lease.close();
             } catch (IOException e) {
-                log.error("Error deleting NLI hotfolder lock file: {}", e);
+                log.error("Error releasing NLI hotfolder run lease: {}", e);
                 // record the IOException
-                quartzJobLog.addErrorEntry("Error deleting NLI hotfolder lock file: " + e.getMessage());
+                quartzJobLog.addErrorEntry("Error releasing NLI hotfolder run lease: " + e.getMessage());
             }
         }
     }
 
-    public List<ImportObject> createProcesses(List<HotfolderFolder> importFolders) throws IOException {
-        List<ImportObject> imports = new ArrayList<>();
-        NLIHotfolderImport importer = new NLIHotfolderImport(config, this.storageProvider, ConfigurationHelper.getInstance().getTemporaryFolder(),
-                ConfigOpac.getInstance());
-        for (HotfolderFolder hff : importFolders) {
-
+    /**
+     * get the running HotfolderWatcher, starting it if necessary. The watcher outlives the job instance that started it.
+     * 
+     * @return the HotfolderWatcher, or null if it could not be started
+     */
+    private HotfolderWatcher getWatcher() {
+        synchronized (HotfolderNLIQuartzJob.class) {
+            if (watcher != null && watcher.isRunning() && watcher.getHotfolderPath().equals(config.getHotfolderPath())) {
+                return watcher;
+            }
+            stopWatcher();
             try {
-                imports.addAll(importer.createProcessesFromHotfolder(hff));
-            } catch (NullPointerException | IllegalStateException e) {
-                log.error("NLI hotfolder - unexpected error " + e.toString() + " when processing import folder " + hff.getProjectFolder(), e);
-            } catch (ImportException e) {
-                log.error("NLI hotfolder - Error  when processing import folder " + hff.getProjectFolder() + ". Reason: " + e.toString());
+                HotfolderWatcher newWatcher = new HotfolderWatcher(config.getHotfolderPath(), Duration.ofMinutes(config.getMinutesOfInactivity()),
+                        Duration.ofMinutes(config.getFullScanInterval()), this::importWatchedFolders);
+                newWatcher.start();
+                watcher = newWatcher;
+            } catch (IOException e) {
+                log.error("NLI hotfolder: Unable to watch the hotfolder, falling back to scheduled scans: {}", e.toString());
             }
+            return watcher;
         }
-
-        return imports;
     }
 
-    // ======= private methods ======= //
-
-    private void updateRunsLog(Path hotfolderPath, List<GUIImportResult> guiResults, int numberSetting) {
-        // write result to a json file located at the hotfolderPath
-        ObjectMapper om = new ObjectMapper();
-        log.info("NLI hotfolder: Writing import results to " + hotfolderPath);
-
-        Path resultsJsonPath = hotfolderPath.resolve(RESULTS_JSON_FILENAME);
-
-        String reducedLastResult = "";
-        try {
-            reducedLastResult = getReducedPreviousRunInfos(resultsJsonPath, numberSetting);
-        } catch (IOException e) {
-            log.error("Error trying to update the log file: {}", e);
-            return;
-        }
-
-        // TODO: How to use StorageProviderInterface to replace Files in the following case?
-        try (OutputStream out = Files.newOutputStream(resultsJsonPath, StandardOpenOption.TRUNCATE_EXISTING,
-                StandardOpenOption.CREATE)) {
-
-            out.write("[".getBytes());
-            // new results come first
-            out.write(om.writeValueAsBytes(guiResults));
-            // append old results
-            out.write(reducedLastResult.getBytes());
-        } catch (IOException e) {
-            log.error("Error trying to update the log file: {}", e);
+    /**
+     * get the assignment of the project folders to the active nodes, joining the nodes if this node is not a member yet. Nodes whose membership
+     * expired are left out, so that their project folders are taken over by the others.
+     * 
+     * @return the assignment, or null if this node cannot join
+     * @throws IOException if the membership lease cannot be written
+     */
+    private ShardAssignment getShardAssignment() throws IOException {
+        synchronized (HotfolderNLIQuartzJob.class) {
+            if (membershipLease == null || membershipLease.isLost()) {
+                membershipCoordinator = new RunCoordinator(config.getHotfolderPath(), Duration.ofSeconds(config.getLeaseTimeout()));
+                membershipLease = membershipCoordinator.tryJoin();
+                if (membershipLease == null) {
+                    log.warn("NLI hotfolder: The membership of node {} is still held, waiting until it expired", RunCoordinator.getNodeName());
+                    return null;
+                }
+            }
+            List<String> nodes = membershipCoordinator.getActiveNodes();
+            log.debug("NLI hotfolder: Sharing the hotfolder with the nodes {}", nodes);
+            return new ShardAssignment(nodes);
         }
     }
 
-    private String getReducedPreviousRunInfos(Path resultsJsonPath, int numberSetting) throws IOException {
-        if (!storageProvider.isFileExists(resultsJsonPath)) {
-            Files.createFile(resultsJsonPath);
-            return "]";
-        }
-
-        String lastResults = "";
-        try (InputStream inputStream = storageProvider.newInputStream(resultsJsonPath)) {
-            lastResults = new String(inputStream.readAllBytes());
+    private static void leaveShards() {
+        synchronized (HotfolderNLIQuartzJob.class) {
+            if (membershipLease != null) {
+                try {
+                    membershipLease.close();
+                } catch (IOException e) {
+                    log.warn("NLI hotfolder: Error leaving the shared hotfolder: {}", e.toString());
+                }
+                membershipLease = null;
+                membershipCoordinator = null;
+            }
         }
+    }
 
-        if (StringUtils.isBlank(lastResults)) {
-            // the log file is still empty
-            log.debug(resultsJsonPath + " is blank");
-            return "]";
+    private static void stopWatcher() {
+        synchronized (HotfolderNLIQuartzJob.class) {
+            if (watcher != null) {
+                try {
+                    watcher.close();
+                } catch (IOException e) {
+                    log.warn("NLI hotfolder: Error stopping the hotfolder watcher: {}", e.toString());
+                }
+                watcher = null;
+            }
         }
+    }
 
-        return config.isUseTimeDifference() ? getReducedPreviousRunInfosGivenTimeDifference(lastResults, numberSetting)
-                : getReducedPreviousRunInfosGivenNumberLimit(lastResults, numberSetting);
+    public List<ImportObject> createProcesses(List<HotfolderFolder> importFolders) throws IOException {
+        return createProcesses(importFolders, null, null, null);
     }
 
-    private String getReducedPreviousRunInfosGivenNumberLimit(String lastResults, int allowedNumberOfLogs) {
+    /**
+     * import the given folders
+     * 
+     * @param importFolders project folders to import
+     * @param planner decides whether a folder may still be started and records the durations of the imports, null if the run is not planned
+     * @param claimCoordinator claims the process folders before they are imported, null if no other node imports at the same time
+     * @param lease lease of the run, which is checked before processes are created or source files are deleted, null if the run is not coordinated
+     * @return the ImportObjects of all project folders
+     * @throws IOException
+     */
+    public List<ImportObject> createProcesses(List<HotfolderFolder> importFolders, RunPlanner planner, RunCoordinator claimCoordinator,
+            RunCoordinator.Lease lease) throws IOException {
+        NLIHotfolderImport importer = new NLIHotfolderImport(config, this.storageProvider, ConfigurationHelper.getInstance().getTemporaryFolder(),
+                ConfigOpac.getInstance(), templateCache, claimCoordinator, lease);
+        Map<String, WorkerStatistics> statistics = new ConcurrentHashMap<>();
 
-        if (allowedNumberOfLogs <= 1) {
-            return "]";
+        int numberOfThreads = Math.min(config.getNumberOfImportThreads(), importFolders.size());
+        List<ImportObject> imports = new ArrayList<>();
+        if (numberOfThreads <= 1) {
+            for (HotfolderFolder hff : importFolders) {
+                imports.addAll(createProcessesFromFolder(importer, hff, statistics, planner));
+            }
+        } else {
+            imports = createProcessesInParallel(importer, importFolders, numberOfThreads, statistics, planner);
         }
 
-        // otherwise, only the first allowedNumberOfLogs - 1 logs from lastResults will be kept
-        lastResults = ",\n" + lastResults.substring(1);
-
-        // use StringBuilder and count the number of [
-        StringBuilder sb = new StringBuilder();
+        logWorkerStatistics(statistics);
+        return imports;
+    }
 
-        int numberOfLogs = 0;
-        boolean startingNewLog = false;
-        for (String s : lastResults.split("")) {
-            if ("[".equals(s)) {
-                numberOfLogs += 1;
-                startingNewLog = true;
-            }
+    // ======= private methods ======= //
 
-            sb.append(s);
+    /**
+     * import the given project folders using a pool of numberOfThreads workers. The results are merged in the order of the input list.
+     * 
+     * @param importer the NLIHotfolderImport shared by all workers
+     * @param importFolders project folders to import
+     * @param numberOfThreads size of the worker pool
+     * @param statistics map collecting the throughput of each worker
+     * @param planner RunPlanner, null if the run is not planned
+     * @return the ImportObjects of all project folders
+     */
+    private List<ImportObject> createProcessesInParallel(NLIHotfolderImport importer, List<HotfolderFolder> importFolders, int numberOfThreads,
+            Map<String, WorkerStatistics> statistics, RunPlanner planner) {
+        log.info("NLI hotfolder: importing " + importFolders.size() + " project folders using " + numberOfThreads + " threads");
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads,
+                runnable -> new Thread(runnable, "nli-hotfolder-import-" + threadCounter.incrementAndGet()));
+
+        List<Future<List<ImportObject>>> futures = new ArrayList<>();
+        for (HotfolderFolder hff : importFolders) {
+            futures.add(executor.submit(() -> createProcessesFromFolder(importer, hff, statistics, planner)));
+        }
+        executor.shutdown();
 
-            if (startingNewLog && "]".equals(s)) {
-                startingNewLog = false;
-                if (numberOfLogs == allowedNumberOfLogs - 1) {
-                    // time to cut out the tail
-                    sb.append("]");
-                    break;
+        List<ImportObject> imports = new ArrayList<>();
+        try {
+            for (Future<List<ImportObject>> future : futures) {
+                try {
+                    imports.addAll(future.get());
+                } catch (ExecutionException e) {
+                    log.error("NLI hotfolder - unexpected error in import worker: " + e.getCause(), e.getCause());
                 }
             }
+        } catch (InterruptedException e) {
+            log.warn("NLI hotfolder - interrupted while waiting for import workers, cancelling remaining project folders");
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
         }
 
-        return sb.toString();
+        return imports;
     }
 
-    private String getReducedPreviousRunInfosGivenTimeDifference(String lastResults, int allowedTimeDifference) {
-        // lastResults has form [[{},{}],\n[{},{}],\n[{},{}]]
-        // get rid of the first [ and the last ]
-        String results = lastResults.substring(lastResults.indexOf("[") + 1, lastResults.lastIndexOf("]"));
-        // split results into an array of arrays formed like [GUIImportResult, GUIImportResult, GUIImportResult, ...],
-        // where each array represents a log entry of one previous run
-        String[] resultsArray = results.split(",\\n");
-        LocalDateTime now = LocalDateTime.now();
-
-        StringBuilder sb = new StringBuilder(",\n");
-        for (String result : resultsArray) {
-            if (!checkTimeStamp(result, now, allowedTimeDifference)) {
-                log.debug("Allowed time difference reached, discarding the following logs.");
-                break;
-            }
+    private List<ImportObject> createProcessesFromFolder(NLIHotfolderImport importer, HotfolderFolder hff, Map<String, WorkerStatistics> statistics,
+            RunPlanner planner) {
+        // the folders are checked when they are started, since the time that is left shrinks while the run goes on
+        if (planner != null && !planner.shouldStart(hff)) {
+            return Collections.emptyList();
+        }
+        long start = System.currentTimeMillis();
+        List<ImportObject> imports = Collections.emptyList();
+        try {
+            imports = importer.createProcessesFromHotfolder(hff);
+        } catch (NullPointerException | IllegalStateException e) {
+            log.error("NLI hotfolder - unexpected error " + e.toString() + " when processing import folder " + hff.getProjectFolder(), e);
+        } catch (ImportException e) {
+            log.error("NLI hotfolder - Error  when processing import folder " + hff.getProjectFolder() + ". Reason: " + e.toString());
+        }
 
-            // time stamp check passed
-            sb.append(result);
-            sb.append(",\n");
+        long duration = System.currentTimeMillis() - start;
+        log.debug("NLI hotfolder: {} import objects created from {} in {} ms", imports.size(), hff.getProjectFolder(), duration);
+        statistics.computeIfAbsent(Thread.currentThread().getName(), name -> new WorkerStatistics()).add(imports.size(), duration);
+        if (planner != null) {
+            planner.recordImport(hff, imports.size(), duration);
         }
 
-        // remove the last ",\n"
-        int sbLength = sb.length();
-        sb.delete(sbLength - 2, sbLength);
-        sb.append("]");
+        return imports;
+    }
 
-        return sb.toString();
+    private void logWorkerStatistics(Map<String, WorkerStatistics> statistics) {
+        statistics.entrySet()
+                .stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> log.info("NLI hotfolder: worker {} - {}", entry.getKey(), entry.getValue()));
     }
 
-    private boolean checkTimeStamp(String result, LocalDateTime now, int allowedTimeDifference) {
-        DateTimeFormatter formatter = GUIImportResult.getFormatter();
-        Gson gson = new Gson();
+    private void savePlannerStatistics(RunPlanner planner) {
         try {
-            GUIImportResult[] importResults = gson.fromJson(result, GUIImportResult[].class);
-            for (GUIImportResult importResult : importResults) {
-                String timestamp = importResult.getTimestamp();
-                LocalDateTime dateTime = LocalDateTime.parse(timestamp, formatter);
-                Duration duration = Duration.between(dateTime, now);
-                if (duration.toHours() < allowedTimeDifference) {
-                    return true;
-                }
-            }
-            return false;
+            planner.save();
+        } catch (IOException e) {
+            log.error("NLI hotfolder: Error writing the import durations: {}", e.toString());
+        }
+    }
 
-        } catch (DateTimeParseException e) {
-            log.debug("DateTimeParseException caught during the time stamp check.");
-            return false;
+    private void updateRunsLog(Path hotfolderPath, List<GUIImportResult> guiResults) {
+        log.info("NLI hotfolder: Writing import results to " + hotfolderPath);
+        // keep the runs of the last allowedTimeDifference hours or the last allowedNumberOfLogs runs
+        Duration maxAge = config.isUseTimeDifference() ? Duration.ofHours(config.getAllowedTimeDifference()) : null;
+        try {
+            new RunResultsStore(hotfolderPath).append(guiResults, config.getAllowedNumberOfLogs(), maxAge);
+        } catch (IOException e) {
+            log.error("Error trying to update the log file: {}", e);
+        }
+    }
 
-        } catch (Exception ex) {
-            log.debug("Exception caught during the time stamp check, probably an MalformedJsonException.");
-            return false;
+    /**
+     * Throughput of a single import worker. Every instance is only updated by the thread it belongs to.
+     */
+    private static class WorkerStatistics {
+        private int folders;
+        private int importObjects;
+        private long millis;
+
+        private void add(int numberOfImportObjects, long duration) {
+            folders++;
+            importObjects += numberOfImportObjects;
+            millis += duration;
+        }
+
+        @Override
+        public String toString() {
+            double perMinute = millis > 0 ? importObjects * 60000d / millis : 0;
+            return String.format("%d project folders, %d import objects in %d s (%.1f import objects per minute)", folders, importObjects,
+                    millis / 1000, perMinute);
         }
     }
 
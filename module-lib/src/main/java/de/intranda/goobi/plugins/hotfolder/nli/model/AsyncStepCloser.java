@@ -0,0 +1,113 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.goobi.beans.Process;
+import org.goobi.beans.Step;
+
+import de.sub.goobi.helper.HelperSchritte;
+import de.sub.goobi.helper.enums.StepStatus;
+import de.sub.goobi.persistence.managers.StepManager;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Closes the first steps of new processes in the background, so that the automatic tasks started by closing a step do not hold up the import. Only
+ * the ids of the process and the step are queued, the step is loaded again right before it is closed. If the queue is full, the import waits until
+ * a step was closed. The instance outlives the import run that created it, like the HotfolderWatcher.
+ */
+@Log4j2
+public class AsyncStepCloser {
+
+    private static AsyncStepCloser instance;
+
+    private final int numberOfThreads;
+    private final int queueSize;
+    private final ExecutorService executor;
+    // steps that are queued or being closed, at most numberOfThreads + queueSize
+    private final Semaphore slots;
+    private final AtomicInteger pendingSteps = new AtomicInteger();
+
+    private AsyncStepCloser(int numberOfThreads, int queueSize) {
+        this.numberOfThreads = numberOfThreads;
+        this.queueSize = queueSize;
+        this.slots = new Semaphore(numberOfThreads + queueSize);
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(numberOfThreads, runnable -> {
+            Thread thread = new Thread(runnable, "nli-hotfolder-step-closer-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * get the running instance, replacing it if the configuration changed. A replaced instance still closes the steps that were queued before.
+     * 
+     * @param numberOfThreads number of steps that are closed at the same time, at least 1
+     * @param queueSize number of steps that may wait to be closed, at least 0
+     * @return the instance
+     */
+    public static synchronized AsyncStepCloser getInstance(int numberOfThreads, int queueSize) {
+        int threads = Math.max(numberOfThreads, 1);
+        int size = Math.max(queueSize, 0);
+        if (instance == null || instance.numberOfThreads != threads || instance.queueSize != size) {
+            if (instance != null) {
+                instance.executor.shutdown();
+            }
+            instance = new AsyncStepCloser(threads, size);
+        }
+        return instance;
+    }
+
+    /**
+     * number of steps that are waiting to be closed or being closed right now
+     * 
+     * @return the number of steps, 0 if steps are not closed asynchronously
+     */
+    public static synchronized int getNumberOfPendingSteps() {
+        return instance == null ? 0 : instance.pendingSteps.get();
+    }
+
+    /**
+     * queue the first open step of the process to be closed, waiting while the queue is full
+     * 
+     * @param process the new process
+     * @throws InterruptedException if the thread was interrupted while waiting, in which case the step was not queued
+     */
+    public void closeFirstStep(Process process) throws InterruptedException {
+        Step firstOpenStep = process.getFirstOpenStep();
+        if (firstOpenStep == null) {
+            return;
+        }
+        int processId = process.getId();
+        int stepId = firstOpenStep.getId();
+
+        slots.acquire();
+        pendingSteps.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                closeStep(processId, stepId);
+            } finally {
+                pendingSteps.decrementAndGet();
+                slots.release();
+            }
+        });
+    }
+
+    private void closeStep(int processId, int stepId) {
+        try {
+            Step step = StepManager.getStepById(stepId);
+            if (step == null || step.getBearbeitungsstatusEnum() != StepStatus.OPEN) {
+                // the step was deleted or closed in the meantime
+                log.debug("NLI hotfolder - step {} of process {} is not open anymore", stepId, processId);
+                return;
+            }
+            new HelperSchritte().CloseStepObjectAutomatic(step);
+        } catch (RuntimeException e) {
+            log.error("NLI hotfolder - failed to close step " + stepId + " of process " + processId, e);
+        }
+    }
+
+}
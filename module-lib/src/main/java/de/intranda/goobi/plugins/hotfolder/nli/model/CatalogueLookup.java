@@ -0,0 +1,214 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.goobi.production.plugin.interfaces.IOpacPlugin;
+
+import de.intranda.goobi.plugins.hotfolder.nli.model.exceptions.ImportException;
+import de.unigoettingen.sub.search.opac.ConfigOpacCatalogue;
+import lombok.extern.log4j.Log4j2;
+import ugh.dl.DigitalDocument;
+import ugh.dl.Fileformat;
+import ugh.dl.Prefs;
+import ugh.exceptions.PreferencesException;
+import ugh.exceptions.WriteException;
+import ugh.fileformats.mets.MetsMods;
+
+/**
+ * Requests records of one catalogue for the records of a project folder. Records that are requested again within the configured time, e.g. by a
+ * re-import or when existing processes are replaced, are taken from a cache shared by all lookups, which keeps a copy of each record, since the
+ * importer changes the records it gets. The records of the next rows of a sheet may be requested in the background before they are needed. Opac
+ * plugins keep the state of their last search, so every search gets its own plugin from the catalogue.
+ */
+@Log4j2
+public class CatalogueLookup {
+
+    // records by template, catalogue, search field and identifier, the least recently used record is dropped first
+    private static final Map<String, CachedRecord> CACHE = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final String templateName;
+    private final ConfigOpacCatalogue catalogue;
+    private final String searchField;
+    private final Prefs prefs;
+    private final int cacheSize;
+    private final Duration cacheDuration;
+    // requests in the background by identifier, null if records are not prefetched
+    private final Map<String, Future<Fileformat>> prefetched;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param templateName name of the process template, whose ruleset the records are mapped to
+     * @param catalogue the catalogue
+     * @param searchField the field that is searched for the identifiers
+     * @param prefs the ruleset
+     * @param cacheSize maximum number of records in the cache, 0 to disable the cache
+     * @param cacheDuration time after which a cached record is requested again
+     * @param numberOfPrefetchThreads number of records that may be requested in the background at the same time, 0 to disable prefetching
+     * @throws ImportException if the catalogue has no opac plugin
+     */
+    public CatalogueLookup(String templateName, ConfigOpacCatalogue catalogue, String searchField, Prefs prefs, int cacheSize,
+            Duration cacheDuration, int numberOfPrefetchThreads) throws ImportException {
+        this.templateName = templateName;
+        this.catalogue = catalogue;
+        if (catalogue.getOpacPlugin() == null) {
+            throw new ImportException("Opac plugin for catalogue " + catalogue.getTitle() + " not found. Abort.");
+        }
+        this.searchField = searchField;
+        this.prefs = prefs;
+        this.cacheSize = Math.max(cacheSize, 0);
+        this.cacheDuration = cacheDuration;
+        if (numberOfPrefetchThreads > 0) {
+            this.prefetched = new ConcurrentHashMap<>();
+            AtomicInteger threadCounter = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(numberOfPrefetchThreads, numberOfPrefetchThreads, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "nli-hotfolder-catalogue-" + threadCounter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            // the threads end when the folder is imported, so the lookup does not need to be closed
+            this.executor.allowCoreThreadTimeOut(true);
+        } else {
+            this.prefetched = null;
+            this.executor = null;
+        }
+    }
+
+    /**
+     * start requesting the record of the identifier in the background, unless it is cached or requested already
+     * 
+     * @param identifier the identifier
+     */
+    public void prefetch(String identifier) {
+        if (executor == null || getCachedCopy(identifier) != null) {
+            return;
+        }
+        prefetched.computeIfAbsent(identifier, id -> executor.submit(() -> search(id)));
+    }
+
+    /**
+     * get the record of the identifier from the cache, from a request in the background or from the catalogue
+     * 
+     * @param identifier the identifier
+     * @return the record, which the caller may change
+     * @throws ImportException if the record cannot be found
+     */
+    public Fileformat getRecord(String identifier) throws ImportException {
+        Fileformat cached = getCachedCopy(identifier);
+        if (cached != null) {
+            log.debug("NLI hotfolder - record {} taken from the cache", identifier);
+            return cached;
+        }
+        Future<Fileformat> future = prefetched == null ? null : prefetched.remove(identifier);
+        if (future != null) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ImportException("Interrupted while waiting for record " + identifier, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof ImportException ie) {
+                    throw ie;
+                }
+                throw new ImportException(e.getCause().getMessage(), e.getCause());
+            }
+        }
+        return search(identifier);
+    }
+
+    private Fileformat search(String identifier) throws ImportException {
+        IOpacPlugin opacPlugin = catalogue.getOpacPlugin();
+        if (opacPlugin == null) {
+            throw new ImportException("Opac plugin for catalogue " + catalogue.getTitle() + " not found. Abort.");
+        }
+        Fileformat myRdf;
+        try {
+            myRdf = opacPlugin.search(searchField, identifier, catalogue, prefs);
+        } catch (Exception e) {
+            myRdf = null;
+        }
+        if (myRdf == null) {
+            throw new ImportException("Could not import record " + identifier
+                    + ". Usually this means a ruleset mapping is not correct or the record can not be found in the catalogue.");
+        }
+        putCopy(identifier, myRdf);
+        return myRdf;
+    }
+
+    private String getKey(String identifier) {
+        return templateName + "\u0000" + catalogue.getTitle() + "\u0000" + searchField + "\u0000" + identifier;
+    }
+
+    private Fileformat getCachedCopy(String identifier) {
+        if (cacheSize == 0) {
+            return null;
+        }
+        CachedRecord cached;
+        synchronized (CACHE) {
+            cached = CACHE.get(getKey(identifier));
+            if (cached != null && cached.expires < System.currentTimeMillis()) {
+                CACHE.remove(getKey(identifier));
+                cached = null;
+            }
+        }
+        if (cached == null) {
+            return null;
+        }
+        try {
+            Fileformat copy = new MetsMods(prefs);
+            copy.setDigitalDocument(cached.document.copyDigitalDocument());
+            return copy;
+        } catch (PreferencesException | WriteException e) {
+            log.warn("NLI hotfolder - cannot copy the cached record {}: {}", identifier, e.toString());
+            return null;
+        }
+    }
+
+    private void putCopy(String identifier, Fileformat fileformat) {
+        if (cacheSize == 0) {
+            return;
+        }
+        DigitalDocument copy;
+        try {
+            copy = fileformat.getDigitalDocument().copyDigitalDocument();
+        } catch (PreferencesException | WriteException e) {
+            log.warn("NLI hotfolder - cannot cache record {}: {}", identifier, e.toString());
+            return;
+        }
+        synchronized (CACHE) {
+            CACHE.put(getKey(identifier), new CachedRecord(copy, System.currentTimeMillis() + cacheDuration.toMillis()));
+            Iterator<CachedRecord> iterator = CACHE.values().iterator();
+            while (CACHE.size() > cacheSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    private static class CachedRecord {
+        private final DigitalDocument document;
+        private final long expires;
+
+        private CachedRecord(DigitalDocument document, long expires) {
+            this.document = document;
+            this.expires = expires;
+        }
+    }
+
+}
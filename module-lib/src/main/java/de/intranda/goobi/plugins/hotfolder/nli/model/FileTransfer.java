@@ -0,0 +1,256 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Transfers image files into a folder without reading and writing them twice where possible. Files are renamed if the source is temporary and lies
+ * on the same file system as the target. Otherwise they are hard linked if both lie on the same file system. All other files are copied with
+ * {@link FileChannel#transferTo}, which lets the kernel copy the data, using up to numberOfStreams files of a folder at the same time.
+ *
+ * If a manifest folder is set, copied files are recorded in a {@link TransferManifest}, and a transfer of the same folder that is started again
+ * after an interruption skips the files that were completed before. With verifyChecksums, a CRC32C checksum is computed while a file is copied and
+ * compared with the checksum of the written file, which is also checked again before a recorded file is skipped.
+ */
+@Log4j2
+public class FileTransfer {
+
+    public enum Method {
+        RENAME,
+        LINK,
+        COPY,
+        // copied completely by a previous attempt
+        SKIP
+    }
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final int numberOfStreams;
+    private final boolean useHardLinks;
+    // folder of the transfer manifests, null if transfers cannot be resumed
+    private final Path manifestFolder;
+    private final boolean verifyChecksums;
+
+    /**
+     * @param numberOfStreams number of files of one folder that are copied at the same time, at least 1
+     * @param useHardLinks whether files should be hard linked if source and target lie on the same file system
+     */
+    public FileTransfer(int numberOfStreams, boolean useHardLinks) {
+        this(numberOfStreams, useHardLinks, null, false);
+    }
+
+    /**
+     * @param numberOfStreams number of files of one folder that are copied at the same time, at least 1
+     * @param useHardLinks whether files should be hard linked if source and target lie on the same file system
+     * @param manifestFolder folder for the manifests of resumable transfers, null if transfers should not be resumable
+     * @param verifyChecksums whether copies should be verified with a checksum
+     */
+    public FileTransfer(int numberOfStreams, boolean useHardLinks, Path manifestFolder, boolean verifyChecksums) {
+        this.numberOfStreams = Math.max(numberOfStreams, 1);
+        this.useHardLinks = useHardLinks;
+        this.manifestFolder = manifestFolder;
+        this.verifyChecksums = verifyChecksums;
+    }
+
+    public boolean isResumable() {
+        return manifestFolder != null;
+    }
+
+    /**
+     * transfer the given files. Existing target files are replaced.
+     *
+     * @param files map from the source files to the target files, which must all lie in the same existing folder
+     * @param sourceIsTemporary true if the source files are not needed anymore after the transfer, so that they may be renamed
+     * @throws IOException if a file cannot be transferred, files that were transferred before remain in the target folder
+     */
+    public void transfer(Map<Path, Path> files, boolean sourceIsTemporary) throws IOException {
+        if (files.isEmpty()) {
+            return;
+        }
+        TransferManifest manifest = null;
+        if (manifestFolder != null) {
+            manifest = TransferManifest.open(manifestFolder, files.values().iterator().next().getParent());
+        }
+        try {
+            transfer(files, sourceIsTemporary, manifest);
+        } finally {
+            if (manifest != null) {
+                manifest.close();
+            }
+        }
+        // the folder is complete, nothing to resume
+        if (manifest != null) {
+            manifest.delete();
+        }
+    }
+
+    private void transfer(Map<Path, Path> files, boolean sourceIsTemporary, TransferManifest manifest) throws IOException {
+        if (numberOfStreams == 1 || files.size() == 1) {
+            for (Map.Entry<Path, Path> entry : files.entrySet()) {
+                transferFile(entry.getKey(), entry.getValue(), sourceIsTemporary, manifest);
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(numberOfStreams, files.size()));
+        try {
+            List<Future<Method>> futures = new ArrayList<>();
+            for (Map.Entry<Path, Path> entry : files.entrySet()) {
+                futures.add(executor.submit(() -> transferFile(entry.getKey(), entry.getValue(), sourceIsTemporary, manifest)));
+            }
+            for (Future<Method> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while transferring files", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioe) {
+                throw ioe;
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    Method transferFile(Path source, Path target, boolean sourceIsTemporary) throws IOException {
+        return transferFile(source, target, sourceIsTemporary, null);
+    }
+
+    /**
+     * transfer a single file with the cheapest method that is possible
+     *
+     * @param source the source file
+     * @param target the target file
+     * @param sourceIsTemporary true if the source file may be renamed
+     * @param manifest manifest of the target folder, null if the transfer is not resumable
+     * @return the method that was used
+     * @throws IOException if the file cannot be copied
+     */
+    private Method transferFile(Path source, Path target, boolean sourceIsTemporary, TransferManifest manifest) throws IOException {
+        if (manifest != null && isCompleted(manifest, source, target)) {
+            return Method.SKIP;
+        }
+        if (sourceIsTemporary) {
+            try {
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                return Method.RENAME;
+            } catch (AtomicMoveNotSupportedException e) {
+                // different file systems
+                log.trace("Cannot rename {} to {}: {}", source, target, e.toString());
+            }
+        }
+        if (useHardLinks) {
+            try {
+                Files.deleteIfExists(target);
+                Files.createLink(target, source);
+                return Method.LINK;
+            } catch (UnsupportedOperationException | IOException e) {
+                // different file systems or no support for hard links
+                log.trace("Cannot link {} to {}: {}", source, target, e.toString());
+            }
+        }
+        String checksum = null;
+        if (verifyChecksums) {
+            checksum = copyVerified(source, target);
+        } else {
+            copy(source, target);
+        }
+        Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+        if (manifest != null) {
+            manifest.add(source, target, checksum);
+        }
+        return Method.COPY;
+    }
+
+    private boolean isCompleted(TransferManifest manifest, Path source, Path target) throws IOException {
+        TransferManifest.Entry entry = manifest.getCompleted(source, target);
+        if (entry == null) {
+            return false;
+        }
+        if (verifyChecksums && entry.getChecksum() != null && !entry.getChecksum().equals(checksum(target))) {
+            log.warn("Copying {} again, {} does not match the recorded checksum", source, target);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * copy a file through a buffer, computing the checksum of the data on the way, and compare it with the checksum of the written file
+     *
+     * @return the checksum
+     */
+    private static String copyVerified(Path source, Path target) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+            // write the data to the disk before it is read again for the comparison
+            out.force(false);
+        }
+        String expected = Long.toHexString(crc.getValue());
+        String actual = checksum(target);
+        if (!expected.equals(actual)) {
+            Files.deleteIfExists(target);
+            throw new IOException("Checksum of " + target + " does not match the checksum of " + source);
+        }
+        return expected;
+    }
+
+    private static String checksum(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return Long.toHexString(crc.getValue());
+    }
+
+    private static void copy(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            // transferTo may transfer less than requested
+            while (position < size) {
+                long transferred = in.transferTo(position, size - position, out);
+                if (transferred <= 0) {
+                    throw new IOException("File " + source + " was truncated while it was copied");
+                }
+                position += transferred;
+            }
+        }
+    }
+
+}
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -12,19 +13,17 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
-import org.apache.commons.configuration.SubnodeConfiguration;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.input.BOMInputStream;
@@ -41,7 +40,6 @@ import org.goobi.beans.Processproperty;
 import org.goobi.production.enums.ImportReturnValue;
 import org.goobi.production.enums.ImportType;
 import org.goobi.production.importer.ImportObject;
-import org.goobi.production.plugin.interfaces.IOpacPlugin;
 
 import de.intranda.goobi.plugins.hotfolder.nli.model.config.HotfolderPluginConfig;
 import de.intranda.goobi.plugins.hotfolder.nli.model.config.MetadataMappingObject;
@@ -53,8 +51,8 @@ import de.intranda.goobi.plugins.hotfolder.nli.model.data.RecordDataObject;
 import de.intranda.goobi.plugins.hotfolder.nli.model.exceptions.EmptyFolderImportException;
 import de.intranda.goobi.plugins.hotfolder.nli.model.exceptions.ImportException;
 import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.HotfolderFolder;
+import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.MediaInventory;
 import de.sub.goobi.config.ConfigurationHelper;
-import de.sub.goobi.helper.NIOFileUtils;
 import de.sub.goobi.helper.StorageProviderInterface;
 import de.sub.goobi.helper.exceptions.SwapException;
 import de.sub.goobi.persistence.managers.ProcessManager;
@@ -80,17 +78,12 @@ import ugh.fileformats.mets.MetsMods;
 public class NLIExcelImport {
 
     private String importFolder;
-    private String data;
-    private String currentIdentifier;
-    private List<String> currentCollections = new ArrayList<>();
-    private String ats;
-    private String volumeNumber;
-    private String processTitle;
-
-    private boolean replaceExisting = false;
-    private boolean moveFiles = false;
 
     private static final String OWNER_FILE_EXTENSION = HotfolderFolder.getOwnerFileExtension();
+    // folder inside the import folder that holds the manifests of resumable copies
+    private static final String TRANSFER_MANIFEST_FOLDER = "transferManifests";
+    // folder inside the import folder that marks the processes of direct imports whose images were not copied completely yet
+    private static final String INCOMPLETE_PROCESS_FOLDER = "incompleteProcesses";
 
     private List<ImportType> importTypes;
 
@@ -101,12 +94,24 @@ public class NLIExcelImport {
     private final Prefs prefs;
     private final StorageProviderInterface storageProvider;
 
+    // records may be imported concurrently, so these sets are shared between threads
     // set of folders that contain files of invalid suffices
-    private HashSet<Path> dirtyFolderSet = new HashSet<>();
+    private final Set<Path> dirtyFolderSet = ConcurrentHashMap.newKeySet();
     // set of files that are of invalid suffices
-    private HashSet<Path> invalidFileSet = new HashSet<>();
+    private final Set<Path> invalidFileSet = ConcurrentHashMap.newKeySet();
 
     private final ConfigOpac configOpac;
+    // requests and caches the catalogue records, created when the first record is requested
+    private CatalogueLookup catalogueLookup;
+
+    // links, renames or copies the image files
+    private final FileTransfer fileTransfer;
+
+    // temporary import folders whose images could not be copied completely, they are kept to resume the copy in the next run
+    private final Set<Path> incompleteImportFolders = ConcurrentHashMap.newKeySet();
+
+    // image source folders that were read for the records in progress, so that every folder is only listed once per record
+    private final Map<Path, MediaInventory> mediaInventories = new ConcurrentHashMap<>();
 
     public NLIExcelImport(HotfolderPluginConfig pluginConfig, ConfigOpac configOpac, StorageProviderInterface storageProvider, String importFolder,
             Prefs prefs,
@@ -115,7 +120,9 @@ public class NLIExcelImport {
         this.pluginConfig = pluginConfig;
         this.configOpac = configOpac;
         this.workflowTitle = workflowTitle;
-        this.excelConfig = loadConfig(workflowTitle);
+        this.excelConfig = pluginConfig.getExcelConfig(workflowTitle);
+        this.fileTransfer = new FileTransfer(pluginConfig.getNumberOfCopyStreams(), pluginConfig.isUseHardLinks(),
+                pluginConfig.isResumableCopy() ? Paths.get(importFolder, TRANSFER_MANIFEST_FOLDER) : null, pluginConfig.isVerifyChecksums());
         this.prefs = prefs;
         // by default /opt/digiverso/goobi/tmp/
         this.importFolder = importFolder;
@@ -129,8 +136,7 @@ public class NLIExcelImport {
     @SuppressWarnings("unchecked")
     public ImportObject generateFile(HotfolderRecord record, HotfolderFolder hff) {
 
-        String workflowTitle = hff.getTemplateName();
-        NLIExcelConfig config = loadConfig(workflowTitle);
+        NLIExcelConfig config = getConfig();
 
         ImportObject io = new ImportObject();
         try {
@@ -143,7 +149,6 @@ public class NLIExcelImport {
             }
 
             // name the process:
-            currentIdentifier = config.getProcessIdentifier().getValue(tempObject);
             String processName = config.getProcessTitle().getValue(tempObject);
             if (StringUtils.isBlank(hff.getOwnerName(processName))) {
                 log.debug("No owner file found for process {}", processName);
@@ -156,8 +161,7 @@ public class NLIExcelImport {
                 verifyMediaFiles(hff, tempObject);
             }
 
-            String processNameCleaned = processName.replaceAll(ConfigurationHelper.getInstance().getProcessTitleReplacementRegex(),
-                    this.pluginConfig.getIllegalCharacterReplacement());
+            String processNameCleaned = cleanProcessTitle(processName);
 
             // check mandatory fields
             checkMandatoryFields(tempObject);
@@ -170,8 +174,14 @@ public class NLIExcelImport {
             // write mets file into import folder
             ff.write(fileName);
 
-            // copy the image to the import folder, which lies directly in the goobi import directory and contains the files to be imported
-            Path importImageFolder = copyImagesFromSourceToTempFolder(io, fileName, hff, tempObject);
+            Path importImageFolder;
+            if (config.isDirectImport()) {
+                // the images are copied from the hotfolder into the process folder once the process exists, see copyImagesIntoNewProcess
+                importImageFolder = checkImagesOfSourceFolder(hff, tempObject);
+            } else {
+                // copy the image to the import folder, which lies directly in the goobi import directory and contains the files to be imported
+                importImageFolder = copyImagesFromSourceToTempFolder(io, fileName, hff, tempObject);
+            }
             log.debug("importImageFolder = " + importImageFolder);
             if (importImageFolder == null) {
                 // there is nothing valid to import
@@ -184,7 +194,7 @@ public class NLIExcelImport {
             io.setImportReturnValue(ImportReturnValue.ExportFinished);
 
             // check if the process exists
-            if (replaceExisting) {
+            if (config.isReplaceExistingProcesses()) {
                 // ImportReturnValue might be changed by the following statement
                 replaceExistingProcess(io, ff, importImageFolder, tempObject);
             }
@@ -212,15 +222,14 @@ public class NLIExcelImport {
      * @param dataObject the import data object
      * @throws ImportException if verification fails
      */
-    private void verifyMediaFiles(HotfolderFolder hff, IRecordDataObject dataObject) throws ImportException {
+    private void verifyMediaFiles(HotfolderFolder hff, IRecordDataObject dataObject) throws ImportException, IOException {
         Path imageSourceFolder = getImageFolderPath(hff, dataObject);
 
         if (storageProvider.isFileExists(imageSourceFolder) && storageProvider.isDirectory(imageSourceFolder)) {
-            List<Path> dataInSourceImageFolder = storageProvider.listFiles(imageSourceFolder.toString(), NIOFileUtils.imageNameFilter);
-            Map<String, List<Path>> filesByMimetype =
-                    dataInSourceImageFolder.stream().collect(Collectors.groupingBy(NIOFileUtils::getMimeTypeFromFile));
-            int numJpegs = filesByMimetype.getOrDefault("image/jpeg", Collections.emptyList()).size();
-            int numTiffs = filesByMimetype.getOrDefault("image/tiff", Collections.emptyList()).size();
+            // the files were classified by their first bytes when the folder was read
+            MediaInventory inventory = getMediaInventory(imageSourceFolder);
+            int numJpegs = inventory.count(MediaInventory.MIMETYPE_JPEG);
+            int numTiffs = inventory.count(MediaInventory.MIMETYPE_TIFF);
             if (numJpegs > 0 && numTiffs > 0 && numJpegs != numTiffs) {
                 throw new ImportException(
                         "Cannot import folder " + imageSourceFolder + ": It contains " + numJpegs + " Jpeg files but " + numTiffs + " Tiff files");
@@ -235,8 +244,14 @@ public class NLIExcelImport {
             sourceFolder = getImageFolderPath(hff, record.getDataObject());
             if (sourceFolder != null && storageProvider.isFileExists(sourceFolder)) {
                 // delete all valid files from dirty folders
+                MediaInventory inventory = mediaInventories.remove(sourceFolder);
                 if (dirtyFolderSet.contains(sourceFolder)) {
-                    for (Path filePath : storageProvider.listFiles(sourceFolder.toString())) {
+                    List<Path> files = inventory != null ? inventory.getEntries()
+                            .stream()
+                            .map(MediaInventory.MediaFile::getPath)
+                            .filter(path -> !path.getFileName().toString().startsWith("."))
+                            .collect(Collectors.toList()) : storageProvider.listFiles(sourceFolder.toString());
+                    for (Path filePath : files) {
                         if (!invalidFileSet.contains(filePath)) {
                             storageProvider.deleteFile(filePath);
                         }
@@ -260,7 +275,15 @@ public class NLIExcelImport {
         return this.getConfig().isMoveImage();
     }
 
+    public boolean shouldStreamImportFile() {
+        return this.getConfig().isStreamImportFile();
+    }
+
     public void deleteTempImportData(ImportObject io) {
+        // the record is finished, its image source folder may be read again by a later run
+        if (io.getImportFileName() != null) {
+            mediaInventories.remove(Paths.get(io.getImportFileName()));
+        }
         //remove temp file
         try {
             if (io.getMetsFilename() != null) {
@@ -269,7 +292,9 @@ public class NLIExcelImport {
                     storageProvider.deleteFile(filePath);
                 }
                 Path folderPath = new File(io.getMetsFilename().replace(".xml", "")).toPath();
-                if (storageProvider.isFileExists(folderPath)) {
+                if (incompleteImportFolders.remove(folderPath)) {
+                    log.info("Keeping the incomplete import folder {} to resume copying the images", folderPath);
+                } else if (storageProvider.isFileExists(folderPath)) {
                     storageProvider.deleteDir(folderPath);
                 }
             }
@@ -320,9 +345,13 @@ public class NLIExcelImport {
                 rowCounter++;
             }
 
+            // the header lookup and the hotfolder values are the same for every row, so all records share them
+            Map<String, Integer> sharedHeaderOrder = Collections.unmodifiableMap(headerOrder);
+            Map<String, String> hotfolderValues = getHotfolderValues(hff, null);
+
             // run through all the data rows
             while (rowIterator.hasNext() && rowCounter < rowDataEnd) {
-                rowCounter = addRowProcess(hff, recordList, headerOrder, rowIterator, rowCounter);
+                rowCounter = addRowProcess(recordList, sharedHeaderOrder, hotfolderValues, rowIterator, rowCounter);
             }
         } catch (IOException e) {
             log.error(e);
@@ -332,6 +361,19 @@ public class NLIExcelImport {
         return recordList;
     }
 
+    /**
+     * Open a {@link StreamingExcelReader} on the import file of the HotfolderFolder. Other than {@link #generateRecordsFromFile(HotfolderFolder)}
+     * the records are read lazily while iterating, so that the whole workbook never needs to be held in memory.
+     * 
+     * @param hff HotfolderFolder
+     * @return a reader providing the records of the import file, which must be closed after use
+     * @throws IOException if the import file cannot be opened
+     */
+    public StreamingExcelReader streamRecordsFromFile(HotfolderFolder hff) throws IOException {
+        return new StreamingExcelReader(hff.getImportFile(), getConfig().getRowHeader(), getConfig().getRowDataStart(), getConfig().getRowDataEnd(),
+                getHotfolderValues(hff, null), this.excelConfig.getProcessIdentifier());
+    }
+
     //    @Override
     //    public int hashCode(){
     //
@@ -361,11 +403,15 @@ public class NLIExcelImport {
             checkImageSourceFolder(imageSourceFolder);
             return true;
         } catch (EmptyFolderImportException ee) {
+            mediaInventories.remove(imageSourceFolder);
             log.debug("Cannot import " + imageSourceFolder + ": " + ee.getMessage());
             log.debug("Deleting empty folder: " + imageSourceFolder);
             storageProvider.deleteDir(imageSourceFolder);
             return false;
         } catch (ImportException e) {
+            if (imageSourceFolder != null) {
+                mediaInventories.remove(imageSourceFolder);
+            }
             log.trace("Cannot import " + imageSourceFolder + ": " + e.getMessage());
             return false;
         }
@@ -387,22 +433,41 @@ public class NLIExcelImport {
         // check the last modification time of imageSourceFolder to see if the configured block timeout is over
         Integer minutes = getConfig().getSourceImageFolderMofidicationBlockTimeout();
         Duration blockTimeoutDuration = Duration.of(minutes, ChronoUnit.MINUTES);
-        Instant lastModifiedInstant = Instant.ofEpochMilli(storageProvider.getLastModifiedDate(imageSourceFolder));
+        MediaInventory inventory = getMediaInventory(imageSourceFolder);
+        Instant lastModifiedInstant = Instant.ofEpochMilli(inventory.getLastModified());
         if (lastModifiedInstant.isAfter(Instant.now().minus(blockTimeoutDuration))) {
             // comment out the following line or configure the <sourceImageFolderMofidicationBlockTimout> block to allow a fast test
             throw new ImportException("Image folder has been modified in the last " + minutes + " minutes");
             //            log.debug("Image folder has been modified in the last " + minutes + " minutes");
         }
 
-        // TODO: How to use StorageProviderInterface to replace Files in the following cases?
-        try (Stream<Path> fileStream = Files.list(imageSourceFolder)) {
-            List<Path> allFiles = fileStream.collect(Collectors.toList());
-            if (allFiles.stream().filter(p -> Files.isRegularFile(p)).findAny().isEmpty()) {
-                throw new EmptyFolderImportException("Image folder does not contain any regular files");
-            }
-            if (!allFiles.stream().allMatch(p -> Files.isRegularFile(p))) {
-                throw new ImportException("Image folder contains folders or symlinks");
-            }
+        if (!inventory.hasRegularFiles()) {
+            throw new EmptyFolderImportException("Image folder does not contain any regular files");
+        }
+        if (!inventory.hasOnlyRegularFiles()) {
+            throw new ImportException("Image folder contains folders or symlinks");
+        }
+    }
+
+    /**
+     * get the inventory of an image source folder, reading the folder only if it was not read for the current record yet
+     * 
+     * @param imageSourceFolder path to the image source folder
+     * @return the inventory
+     * @throws IOException if the folder cannot be read
+     */
+    private MediaInventory getMediaInventory(Path imageSourceFolder) throws IOException {
+        try {
+            // the content is only read if the media files are verified
+            return mediaInventories.computeIfAbsent(imageSourceFolder, folder -> {
+                try {
+                    return MediaInventory.scan(folder, pluginConfig.shouldVerifyMediaFiles());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
     }
 
@@ -514,22 +579,11 @@ public class NLIExcelImport {
         // get catalogue identifier
         String identifier = getCatalogueIdentifierFromRowMap(data);
 
-        // find the proper ConfigOpacCatalogue according to the input catalogue
-        String catalogue = getConfig().getOpacName();
-        ConfigOpacCatalogue coc = getProperConfigOpacCatalogue(catalogue);
-        IOpacPlugin myImportOpac = coc.getOpacPlugin();
-        if (myImportOpac == null) {
-            throw new ImportException("Opac plugin for catalogue " + catalogue + " not found. Abort.");
-        }
-
-        // find out Fileformat from IOpacPlugin regarding identifier
-        Fileformat myRdf = getFileformatGivenIdentifier(myImportOpac, coc, identifier);
+        // find out Fileformat from the catalogue regarding identifier
+        Fileformat myRdf = getCatalogueLookup().getRecord(identifier);
 
-        // get DocStruct from Fileformat
-        DocStruct ds = getDocStructFromFileformat(myRdf, identifier);
-
-        // update the private field ats
-        updateFieldAts(myImportOpac, ds);
+        // make sure that the record contains a usable DocStruct
+        getDocStructFromFileformat(myRdf, identifier);
 
         return myRdf;
     }
@@ -555,6 +609,84 @@ public class NLIExcelImport {
         return catalogueIdentifier;
     }
 
+    /**
+     * get the lookup of the configured catalogue, which is created when the first record is requested
+     * 
+     * @return the lookup
+     * @throws ImportException if the catalogue or its opac plugin is not found
+     */
+    private synchronized CatalogueLookup getCatalogueLookup() throws ImportException {
+        if (catalogueLookup == null) {
+            // find the proper ConfigOpacCatalogue according to the input catalogue
+            ConfigOpacCatalogue coc = getProperConfigOpacCatalogue(getConfig().getOpacName());
+            catalogueLookup = new CatalogueLookup(workflowTitle, coc, getConfig().getSearchField(), prefs, pluginConfig.getCatalogueCacheSize(),
+                    Duration.ofMinutes(pluginConfig.getCatalogueCacheMinutes()), pluginConfig.getNumberOfCataloguePrefetches());
+        }
+        return catalogueLookup;
+    }
+
+    /**
+     * start requesting the catalogue record of a record that will be imported soon, if records are prefetched
+     * 
+     * @param record the record
+     */
+    public void prefetchCatalogueRecord(HotfolderRecord record) {
+        if (!getConfig().isUseOpac() || pluginConfig.getNumberOfCataloguePrefetches() == 0) {
+            return;
+        }
+        try {
+            getCatalogueLookup().prefetch(getCatalogueIdentifierFromRowMap(record.getDataObject()));
+        } catch (ImportException e) {
+            // reported when the record is imported
+            log.trace("Cannot prefetch the catalogue record: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * get the image source folder of a record
+     *
+     * @param hff HotfolderFolder
+     * @param record the record
+     * @return the folder, null if the record does not name one
+     */
+    public Path getRecordFolder(HotfolderFolder hff, HotfolderRecord record) {
+        try {
+            return getImageFolderPath(hff, record.getDataObject());
+        } catch (ImportException e) {
+            // reported when the record is imported
+            return null;
+        }
+    }
+
+    /**
+     * get the size of the files in the image source folder of a record, if the folder is ready for the import. The folder is read into the
+     * inventory that is used by the import of the record afterwards. Nothing is deleted, even if the folder is empty.
+     *
+     * @param hff HotfolderFolder
+     * @param record the record
+     * @return the size in bytes, -1 if the folder does not exist, cannot be read or is not ready for the import
+     */
+    public long getImportableRecordSize(HotfolderFolder hff, HotfolderRecord record) {
+        Path imageSourceFolder = getRecordFolder(hff, record);
+        if (imageSourceFolder == null) {
+            return -1;
+        }
+        try {
+            checkImageSourceFolder(imageSourceFolder);
+            long size = 0;
+            for (MediaInventory.MediaFile file : getMediaInventory(imageSourceFolder).getEntries()) {
+                if (file.isRegularFile()) {
+                    size += file.getSize();
+                }
+            }
+            return size;
+        } catch (ImportException | IOException e) {
+            // reported when the record is imported
+            log.trace("The record in {} cannot be imported: {}", imageSourceFolder, e.getMessage());
+            return -1;
+        }
+    }
+
     /**
      * get the config opac catalogue object
      * 
@@ -578,29 +710,6 @@ public class NLIExcelImport {
         return coc;
     }
 
-    /**
-     * 
-     * @param myImportOpac IOpacPlugin
-     * @param coc ConfigOpacCatalogue object
-     * @param identifier
-     * @return Fileformat object
-     * @throws ImportException
-     */
-    private Fileformat getFileformatGivenIdentifier(IOpacPlugin myImportOpac, ConfigOpacCatalogue coc, String identifier) throws ImportException {
-        Fileformat myRdf = null;
-        try {
-            myRdf = myImportOpac.search(getConfig().getSearchField(), identifier, coc, prefs);
-            if (myRdf == null) {
-                throw new ImportException("Could not import record " + identifier
-                        + ". Usually this means a ruleset mapping is not correct or the record can not be found in the catalogue.");
-            }
-        } catch (Exception e1) {
-            throw new ImportException("Could not import record " + identifier
-                    + ". Usually this means a ruleset mapping is not correct or the record can not be found in the catalogue.");
-        }
-        return myRdf;
-    }
-
     /**
      * 
      * @param myRdf Fileformat object
@@ -626,26 +735,6 @@ public class NLIExcelImport {
         return ds;
     }
 
-    /**
-     * update the private field ats
-     * 
-     * @param myImportOpac
-     * @param ds DocStruct object
-     */
-    private void updateFieldAts(IOpacPlugin myImportOpac, DocStruct ds) {
-        try {
-            ats = myImportOpac.getAtstsl();
-
-            List<? extends Metadata> sort = ds.getAllMetadataByType(prefs.getMetadataTypeByName("CurrentNoSorting"));
-            if (sort != null && !sort.isEmpty()) {
-                volumeNumber = sort.get(0).getValue();
-            }
-
-        } catch (Exception e) {
-            ats = "";
-        }
-    }
-
     /**
      * 
      * @param io ImportObject, which will be modified
@@ -756,7 +845,15 @@ public class NLIExcelImport {
 
             Path path = Paths.get(foldername, "images", folderNameRule);
             String fileNamePrefix = getConfig().getImageNamePrefix().getValue(data);
-            copyImagesToFolder(imageSourceFolder, path.toString(), fileNamePrefix);
+            // the source files stay in the hotfolder until the import succeeded
+            try {
+                copyImagesToFolder(imageSourceFolder, path.toString(), fileNamePrefix, false);
+            } catch (IOException e) {
+                if (fileTransfer.isResumable()) {
+                    incompleteImportFolders.add(Paths.get(foldername));
+                }
+                throw e;
+            }
             // check if there are any files copied to path, and if not, return null to signify this
             if (storageProvider.listFiles(path.toString()).isEmpty()) {
                 return null;
@@ -769,6 +866,91 @@ public class NLIExcelImport {
 
     }
 
+    /**
+     * check the image source folder of a record that is imported directly into the process folder
+     * 
+     * @param hff HotfolderFolder
+     * @param data data of the record
+     * @return path to the image source folder, or null if it contains nothing to import
+     * @throws ImportException If no image folder was found or if it contains files with invalid suffixes
+     */
+    private Path checkImagesOfSourceFolder(HotfolderFolder hff, IRecordDataObject data) throws ImportException, IOException {
+        Path imageSourceFolder = getImageFolderPath(hff, data);
+        if (!storageProvider.isFileExists(imageSourceFolder) || !storageProvider.isDirectory(imageSourceFolder)) {
+            throw new ImportException("No images to copy: Image source folder " + imageSourceFolder + " does not exist");
+        }
+        return listImportableEntries(getMediaInventory(imageSourceFolder)).isEmpty() ? null : imageSourceFolder;
+    }
+
+    /**
+     * copy the images of a record directly from the hotfolder into the master folder of the process that was created for it
+     * 
+     * @param record the record
+     * @param hff HotfolderFolder
+     * @param process the new process
+     * @throws ImportException if the images cannot be copied
+     */
+    public void copyImagesIntoNewProcess(HotfolderRecord record, HotfolderFolder hff, Process process) throws ImportException {
+        IRecordDataObject data = record.getDataObject();
+        try {
+            copyImagesToFolder(getImageFolderPath(hff, data), getMasterFolder(process), getConfig().getImageNamePrefix().getValue(data), false);
+        } catch (IOException | SwapException e) {
+            throw new ImportException(e.getMessage(), e);
+        }
+    }
+
+    public boolean isDirectImport() {
+        return getConfig().isDirectImport();
+    }
+
+    /**
+     * mark the process of a direct import as incomplete before it is created, so that a process that was left without images by a crash is
+     * recognized by the next run
+     * 
+     * @param processTitle title of the process
+     * @param record the record whose images are copied into the process
+     * @param hff HotfolderFolder
+     * @throws IOException if the mark cannot be written
+     */
+    public void markProcessIncomplete(String processTitle, HotfolderRecord record, HotfolderFolder hff) throws IOException {
+        Path mark = getIncompleteProcessMark(processTitle);
+        Files.createDirectories(mark.getParent());
+        Path imageSourceFolder = getRecordFolder(hff, record);
+        Files.writeString(mark, imageSourceFolder != null ? imageSourceFolder.toString() : "");
+    }
+
+    /**
+     * remove the mark of a process once its images were copied completely, or once it was deleted
+     * 
+     * @param processTitle title of the process
+     */
+    public void markProcessComplete(String processTitle) {
+        try {
+            Files.deleteIfExists(getIncompleteProcessMark(processTitle));
+        } catch (IOException e) {
+            log.error("Cannot remove the incomplete mark of process {}: {}", processTitle, e.toString());
+        }
+    }
+
+    /**
+     * check whether the process of a direct import was created, but its images were not copied completely
+     * 
+     * @param processTitle title of the process
+     * @return true if the process was marked as incomplete
+     */
+    public boolean isProcessIncomplete(String processTitle) {
+        return processTitle != null && Files.exists(getIncompleteProcessMark(processTitle));
+    }
+
+    private Path getIncompleteProcessMark(String processTitle) {
+        return Paths.get(importFolder, INCOMPLETE_PROCESS_FOLDER, processTitle);
+    }
+
+    private String getMasterFolder(Process process) throws IOException, SwapException {
+        String masterFolderName = getMasterImageDirectoryName().replace("{processtitle}", process.getTitel());
+        return Paths.get(process.getImagesDirectory(), masterFolderName).toString();
+    }
+
     public String getMasterImageDirectoryName() {
         try {
             return ConfigurationHelper.getInstance().getProcessImagesMasterDirectoryName();
@@ -838,7 +1020,12 @@ public class NLIExcelImport {
             throws ImportException {
         try {
             existingProcess.writeMetadataFile(ff);
-            copyImagesIntoProcessFolder(existingProcess, importFolder, fileNamePrefix);
+            if (getConfig().isDirectImport()) {
+                // importFolder is the image source folder in the hotfolder
+                copyImagesToFolder(importFolder, getMasterFolder(existingProcess), fileNamePrefix, false);
+            } else {
+                copyImagesIntoProcessFolder(existingProcess, importFolder, fileNamePrefix);
+            }
 
         } catch (WriteException | PreferencesException | IOException | SwapException e) {
             throw new ImportException(e.getMessage(), e);
@@ -861,7 +1048,8 @@ public class NLIExcelImport {
             if (storageProvider.isDirectory(sourceImageFolder)) {
                 try {
                     String copyToDirectory = existingProcess.getImagesDirectory();
-                    copyImagesToFolder(sourceImageFolder, copyToDirectory, fileNamePrefix);
+                    // the source is the temporary import folder, which is deleted afterwards
+                    copyImagesToFolder(sourceImageFolder, copyToDirectory, fileNamePrefix, true);
 
                 } catch (IOException | SwapException e) {
                     throw new ImportException(e.getMessage(), e);
@@ -886,40 +1074,64 @@ public class NLIExcelImport {
      * @param fileNamePrefix A prefix for the file names of .tif files in the 'copyToDirectory'. If fileNamePrefix is blank, the image files are
      *            copied without name change. Otherwise they are named <fileNamePrefix>_i.tif/pdf/epub in the target folder, where i is an
      *            incrementing integer starting at value 1
+     * @param sourceIsTemporary true if the files in the sourceImageFolder are not needed afterwards, so that they may be renamed instead of copied
      * @throws IOException
-     * @throws ImportException
+     * @throws ImportException if the sourceImageFolder contains files with invalid suffixes
      */
-    private void copyImagesToFolder(Path sourceImageFolder, String copyToDirectory, String fileNamePrefix) throws IOException, ImportException {
+    private void copyImagesToFolder(Path sourceImageFolder, String copyToDirectory, String fileNamePrefix, boolean sourceIsTemporary)
+            throws IOException, ImportException {
 
-        List<Path> dataInSourceImageFolder = storageProvider.listFiles(sourceImageFolder.toString());
-        dataInSourceImageFolder.sort(Comparator.comparing(o -> o.toFile().getName().toUpperCase()));
+        // the temporary import folder was just filled, the hotfolder was read already when the record was checked
+        MediaInventory inventory = sourceIsTemporary ? MediaInventory.scan(sourceImageFolder, false) : getMediaInventory(sourceImageFolder);
+        List<MediaInventory.MediaFile> entries = listImportableEntries(inventory);
         storageProvider.createDirectories(Paths.get(copyToDirectory));
 
-        Set<String> invalidSuffixes = new HashSet<>();
+        // image files are transferred together after the loop, so that they can be copied in parallel
+        Map<Path, Path> imageFiles = new LinkedHashMap<>();
 
         int iNumber = 1;
-        for (Path currentData : dataInSourceImageFolder) {
-            String fileName = currentData.getFileName().toString();
-
-            if (fileName.endsWith(OWNER_FILE_EXTENSION)) {
-                // just ignore the owner file
-                continue;
-            }
-
-            if (storageProvider.isDirectory(currentData)) {
+        for (MediaInventory.MediaFile entry : entries) {
+            Path currentData = entry.getPath();
+            if (entry.isDirectory()) {
                 Path targetDir = Paths.get(copyToDirectory).resolve(currentData.getFileName());
                 storageProvider.createDirectories(targetDir);
                 storageProvider.copyDirectory(currentData, targetDir);
 
-            } else if (!fileName.startsWith(".") && fileName.toLowerCase().matches(getConfig().getAllowedFilenames())) {
-                // valid files
-                String newFilename = fileName;
+            } else {
+                String newFilename = currentData.getFileName().toString();
                 if (StringUtils.isNotBlank(fileNamePrefix)) {
                     String number = String.format("%04d", iNumber);
                     newFilename = fileNamePrefix + "_" + number + "." + FilenameUtils.getExtension(currentData.toString());
                 }
                 iNumber++;
-                storageProvider.copyFile(currentData, Paths.get(copyToDirectory, newFilename));
+                imageFiles.put(currentData, Paths.get(copyToDirectory, newFilename));
+            }
+        }
+        fileTransfer.transfer(imageFiles, sourceIsTemporary);
+    }
+
+    /**
+     * list the subfolders and valid image files of a folder, sorted by name. Owner files and hidden files are ignored.
+     * 
+     * @param inventory inventory of the folder
+     * @return the entries to import
+     * @throws ImportException if the folder contains files with invalid suffixes, which are recorded to keep them in the hotfolder
+     */
+    private List<MediaInventory.MediaFile> listImportableEntries(MediaInventory inventory) throws ImportException {
+        Path sourceImageFolder = inventory.getFolder();
+        List<MediaInventory.MediaFile> entries = new ArrayList<>();
+        Set<String> invalidSuffixes = new HashSet<>();
+        for (MediaInventory.MediaFile entry : inventory.getEntries()) {
+            Path currentData = entry.getPath();
+            String fileName = entry.getName();
+
+            if (fileName.endsWith(OWNER_FILE_EXTENSION) || fileName.startsWith(".")) {
+                // just ignore the owner file and hidden files
+                continue;
+            }
+
+            if (entry.isDirectory() || fileName.toLowerCase().matches(getConfig().getAllowedFilenames())) {
+                entries.add(entry);
 
             } else { // if files do not have allowed suffices, then try to report this instead of making empty processes
                 String suffix = fileName.substring(fileName.lastIndexOf(".") + 1);
@@ -941,6 +1153,7 @@ public class NLIExcelImport {
             // message of the ImportException will be recorded to the ImportObject
             throw new ImportException(suffixErrorMessage);
         }
+        return entries;
     }
 
     /**
@@ -973,7 +1186,7 @@ public class NLIExcelImport {
      */
     private void copyFile(Path file, Path destination) throws IOException {
 
-        if (moveFiles) {
+        if (getConfig().isMoveFiles()) {
             storageProvider.move(file, destination);
             //            Files.move(file, destination, StandardCopyOption.REPLACE_EXISTING);
         } else if (storageProvider.isDirectory(file)) {
@@ -985,6 +1198,24 @@ public class NLIExcelImport {
 
     }
 
+    /**
+     * get the title of the process that is created for a record, with illegal characters replaced
+     * 
+     * @param record the record
+     * @return the process title, or null if the record has no title
+     */
+    public String getProcessTitle(HotfolderRecord record) {
+        return cleanProcessTitle(getConfig().getProcessTitle().getValue(record.getDataObject()));
+    }
+
+    private String cleanProcessTitle(String processName) {
+        if (processName == null) {
+            return null;
+        }
+        return processName.replaceAll(ConfigurationHelper.getInstance().getProcessTitleReplacementRegex(),
+                this.pluginConfig.getIllegalCharacterReplacement());
+    }
+
     /**
      * name a Goobi process
      * 
@@ -1002,25 +1233,24 @@ public class NLIExcelImport {
 
     /**
      * 
-     * @param hff
      * @param recordList a list of Record objects
-     * @param idColumn
      * @param headerOrder map between the header as a string and its order as an integer
+     * @param hotfolderValues values of the HotfolderFolder that are shared by all records
      * @param rowIterator
      * @param rowCounter
      * @return rowCounter
      */
-    private int addRowProcess(HotfolderFolder hff, List<HotfolderRecord> recordList, Map<String, Integer> headerOrder,
-            Iterator<Row> rowIterator,
-            int rowCounter) {
+    private int addRowProcess(List<HotfolderRecord> recordList, Map<String, Integer> headerOrder, Map<String, String> hotfolderValues,
+            Iterator<Row> rowIterator, int rowCounter) {
 
-        Map<Integer, String> map = new HashMap<>();
         Row row = rowIterator.next();
         rowCounter++;
         int lastColumn = row.getLastCellNum();
         if (lastColumn == -1) {
             return rowCounter;
         }
+        String[] values = new String[lastColumn];
+        boolean hasValue = false;
         for (int cn = 0; cn < lastColumn; cn++) {
             Cell cell = row.getCell(cn, MissingCellPolicy.CREATE_NULL_AS_BLANK);
             String value = "";
@@ -1042,19 +1272,16 @@ public class NLIExcelImport {
                     value = "";
                     break;
             }
-            map.put(cn, value);
-
+            values[cn] = value;
+            hasValue = hasValue || !value.isEmpty();
         }
 
-        for (String v : map.values()) {
-            if (v != null && !v.isEmpty()) {
-                HotfolderRecord r = new HotfolderRecord();
-                ExcelDataObject data = new ExcelDataObject(headerOrder, map, getHotfolderValues(hff, null));
-                r.setId(this.excelConfig.getProcessIdentifier().getValue(data));
-                r.setObject(data);
-                recordList.add(r);
-                break;
-            }
+        if (hasValue) {
+            HotfolderRecord r = new HotfolderRecord();
+            ExcelDataObject data = new ExcelDataObject(headerOrder, values, hotfolderValues);
+            r.setId(this.excelConfig.getProcessIdentifier().getValue(data));
+            r.setObject(data);
+            recordList.add(r);
         }
         return rowCounter;
     }
@@ -1076,39 +1303,18 @@ public class NLIExcelImport {
         }
     }
 
-    /**
-     * Loads the configuration for the selected template or the default configuration, if the template was not specified.
-     * 
-     * The configuration is stored in a {@link ExcelConfig} object
-     * 
-     * @param workflowTitle
-     * @return
-     */
-    private NLIExcelConfig loadConfig(String workflowTitle) {
-
-        SubnodeConfiguration myconfig = pluginConfig.getTemplateConfig(workflowTitle);
-        if (myconfig != null) {
-            replaceExisting = myconfig.getBoolean("replaceExistingProcesses", false);
-            moveFiles = myconfig.getBoolean("moveFiles", false);
-        }
-
-        return new NLIExcelConfig(myconfig);
-    }
-
     private NLIExcelConfig getConfig() {
         return this.excelConfig;
     }
 
     public List<HotfolderRecord> generateRecordsFromFolder(HotfolderFolder hff) throws IOException {
-        try (Stream<Path> folderStream = Files.list(hff.getProjectFolder()).filter(Files::isDirectory)) {
-            return folderStream.map(folder -> {
-                String folderName = folder.getFileName().toString();
-                HotfolderRecord record = new HotfolderRecord();
-                record.setId(folderName);
-                record.setDataObject(new RecordDataObject(getHotfolderValues(hff, folder)));
-                return record;
-            }).filter(Objects::nonNull).collect(Collectors.toList());
-        }
+        // the process folders were already read when the HotfolderFolder was scanned
+        return hff.getBarcodeFolders().stream().map(folder -> {
+            HotfolderRecord record = new HotfolderRecord();
+            record.setId(folder.getName());
+            record.setDataObject(new RecordDataObject(getHotfolderValues(hff, folder.getPath())));
+            return record;
+        }).collect(Collectors.toList());
     }
 
     public Map<String, String> getHotfolderValues(HotfolderFolder hff, Path folder) {
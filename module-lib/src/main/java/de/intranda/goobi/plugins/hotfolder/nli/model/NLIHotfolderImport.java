@@ -1,9 +1,27 @@
 package de.intranda.goobi.plugins.hotfolder.nli.model;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.apache.commons.lang3.StringUtils;
 import org.goobi.beans.Step;
@@ -17,9 +35,10 @@ import de.intranda.goobi.plugins.hotfolder.nli.model.config.HotfolderScheduler;
 import de.intranda.goobi.plugins.hotfolder.nli.model.config.NLIExcelConfig;
 import de.intranda.goobi.plugins.hotfolder.nli.model.data.HotfolderRecord;
 import de.intranda.goobi.plugins.hotfolder.nli.model.exceptions.ImportException;
-import de.intranda.goobi.plugins.hotfolder.nli.model.exceptions.InvalidFolderImportException;
 import de.intranda.goobi.plugins.hotfolder.nli.model.exceptions.MissingResourcesImportException;
 import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.HotfolderFolder;
+import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.RunCoordinator;
+import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.TemplateQuotas;
 import de.sub.goobi.helper.Helper;
 import de.sub.goobi.helper.HelperSchritte;
 import de.sub.goobi.helper.StorageProviderInterface;
@@ -41,34 +60,69 @@ import ugh.exceptions.WriteException;
 @Log4j2
 public class NLIHotfolderImport {
 
+    // records with the same process title share a temporary METS file and race in JobCreation, so they are imported one after another
+    private static final Object[] PROCESS_TITLE_LOCKS = new Object[64];
+
+    static {
+        for (int i = 0; i < PROCESS_TITLE_LOCKS.length; i++) {
+            PROCESS_TITLE_LOCKS[i] = new Object();
+        }
+    }
+
     private final HotfolderPluginConfig pluginConfig;
     private final StorageProviderInterface storageProvider;
     private final String importFolder;
     private final ConfigOpac configOpac;
+    private final TemplateCache templateCache;
+    // closes the first steps of new processes in the background, null if they are closed by the import
+    private final AsyncStepCloser stepCloser;
+    // records and megabytes that the templates imported in this run
+    private final TemplateQuotas quotas;
+    // claims the process folders if several nodes import at the same time, null if this node imports alone
+    private final RunCoordinator coordinator;
+    // lease of the run, which must still be held when a process is created or source files are deleted, null if the run is not coordinated
+    private final RunCoordinator.Lease runLease;
 
     public NLIHotfolderImport(HotfolderPluginConfig pluginConfig, StorageProviderInterface storageProvider, String importFolder,
             ConfigOpac configOpac) {
+        this(pluginConfig, storageProvider, importFolder, configOpac, new TemplateCache());
+    }
+
+    public NLIHotfolderImport(HotfolderPluginConfig pluginConfig, StorageProviderInterface storageProvider, String importFolder,
+            ConfigOpac configOpac, TemplateCache templateCache) {
+        this(pluginConfig, storageProvider, importFolder, configOpac, templateCache, null, null);
+    }
+
+    public NLIHotfolderImport(HotfolderPluginConfig pluginConfig, StorageProviderInterface storageProvider, String importFolder,
+            ConfigOpac configOpac, TemplateCache templateCache, RunCoordinator coordinator, RunCoordinator.Lease runLease) {
+        this.coordinator = coordinator;
+        this.runLease = runLease;
         this.pluginConfig = pluginConfig;
         this.storageProvider = storageProvider;
         this.importFolder = importFolder;
         this.configOpac = configOpac;
+        this.templateCache = templateCache;
+        this.stepCloser = pluginConfig.isAsyncStepClosing()
+                ? AsyncStepCloser.getInstance(pluginConfig.getNumberOfStepClosingThreads(), pluginConfig.getStepClosingQueueSize())
+                : null;
+        this.quotas = new TemplateQuotas(pluginConfig);
     }
 
     public List<ImportObject> createProcessesFromHotfolder(HotfolderFolder hff) throws ImportException {
         if (hff.getImportFile() == null) {
-            NLIExcelConfig templateConfig = new NLIExcelConfig(pluginConfig.getTemplateConfig(hff.getTemplateName()));
+            NLIExcelConfig templateConfig = pluginConfig.getExcelConfig(hff.getTemplateName());
             if (!templateConfig.isRequireImportFile()) {
                 //otherwise:
                 log.info("NLI hotfolder - importing without import file");
 
                 NLIExcelImport excelImport = new NLIExcelImport(this.pluginConfig, this.configOpac, this.storageProvider, this.importFolder,
-                        loadPrefs(hff.getTemplateName()), hff.getTemplateName());
+                        templateCache.getPrefs(hff.getTemplateName()), hff.getTemplateName());
 
                 // generate the list of all records
                 try {
                     List<HotfolderRecord> records = excelImport.generateRecordsFromFolder(hff);
                     // add all ImportObjects regarding the current HotfolderFolder to the list
-                    return addImportObjectsRegardingHotfolderFolder(records, hff, excelImport);
+                    return addImportObjectsRegardingHotfolderFolder(records.iterator(), hff, excelImport);
                 } catch (IOException e) {
                     ImportObject io = new ImportObject();
                     io.setImportFileName(hff.getTemplateName() + "_" + hff.getProjectFolder().getFileName().toString());
@@ -82,19 +136,23 @@ public class NLIHotfolderImport {
         } else {
             //otherwise:
             log.info("NLI hotfolder - importing: " + hff.getImportFile());
-            Prefs prefs = loadPrefs(hff.getTemplateName());
+            Prefs prefs = templateCache.getPrefs(hff.getTemplateName());
             if (prefs == null) {
                 throw new MissingResourcesImportException(
                         "Could not load preferences file for template " + hff.getTemplateName() + ". Preferences file may be invalid");
             }
             NLIExcelImport excelImport = new NLIExcelImport(this.pluginConfig, this.configOpac, this.storageProvider, this.importFolder,
-                    loadPrefs(hff.getTemplateName()), hff.getTemplateName());
+                    prefs, hff.getTemplateName());
+
+            if (excelImport.shouldStreamImportFile()) {
+                return createProcessesFromStreamedFile(hff, excelImport);
+            }
 
             // generate the list of all records
             try {
                 List<HotfolderRecord> records = excelImport.generateRecordsFromFile(hff);
                 // add all ImportObjects regarding the current HotfolderFolder to the list
-                return addImportObjectsRegardingHotfolderFolder(records, hff, excelImport);
+                return addImportObjectsRegardingHotfolderFolder(records.iterator(), hff, excelImport);
             } catch (IOException e) {
                 ImportObject io = new ImportObject();
                 io.setImportFileName(hff.getImportFile().getAbsolutePath());
@@ -105,42 +163,87 @@ public class NLIHotfolderImport {
         }
     }
 
-    private ImportObject prepareImportObject(HotfolderRecord record, HotfolderFolder hff, NLIExcelImport excelImport) {
-        ImportObject io = excelImport.generateFile(record, hff);
-        if (io == null) {
-            return null;
+    /**
+     * create the processes of the HotfolderFolder while reading its import file row by row
+     * 
+     * @param hff HotfolderFolder
+     * @param excelImport NLIExcelImport
+     * @return a list of ImportObjects
+     */
+    private List<ImportObject> createProcessesFromStreamedFile(HotfolderFolder hff, NLIExcelImport excelImport) {
+        List<ImportObject> imports;
+        try (StreamingExcelReader reader = excelImport.streamRecordsFromFile(hff)) {
+            imports = addImportObjectsRegardingHotfolderFolder(reader, hff, excelImport);
+            if (reader.getReadError() == null) {
+                return imports;
+            }
+        } catch (IOException e) {
+            ImportObject io = new ImportObject();
+            io.setImportFileName(hff.getImportFile().getAbsolutePath());
+            io.setErrorMessage("Could not read import file");
+            return List.of(io);
         }
 
-        if (io.getImportReturnValue() == ImportReturnValue.ExportFinished) {
-            //create new process
-            org.goobi.beans.Process template = ProcessManager.getProcessByExactTitle(hff.getTemplateName());
-            org.goobi.beans.Process processNew = JobCreation.generateProcess(io, template);
-            if (processNew != null && processNew.getId() != null) {
-                log.info("NLI hotfolder - created process: " + processNew.getId());
-
-                // log owner name into process journal and metadata
-                logOwnerName(hff, processNew);
-                hff.deleteOwnerFile(processNew.getTitel());
-                //close first step
-                HelperSchritte hs = new HelperSchritte();
-                Step firstOpenStep = processNew.getFirstOpenStep();
-                hs.CloseStepObjectAutomatic(firstOpenStep);
-
-                // delete source files if configured so
-                if (excelImport.shouldDeleteSourceFiles()) {
-                    excelImport.deleteSourceFiles(hff, record);
-                }
+        // the import file could only be read partially, report this in addition to the records that were imported
+        List<ImportObject> result = new ArrayList<>(imports);
+        ImportObject io = new ImportObject();
+        io.setImportFileName(hff.getImportFile().getAbsolutePath());
+        io.setErrorMessage("Could not read import file completely");
+        result.add(io);
+        return result;
+    }
+
+    private ImportObject prepareImportObject(HotfolderRecord record, HotfolderFolder hff, NLIExcelImport excelImport, BooleanSupplier leaseHeld) {
+        synchronized (getProcessTitleLock(excelImport.getProcessTitle(record))) {
+            return importRecord(record, hff, excelImport, leaseHeld);
+        }
+    }
+
+    private static Object getProcessTitleLock(String processTitle) {
+        int hash = processTitle != null ? processTitle.hashCode() : 0;
+        return PROCESS_TITLE_LOCKS[Math.floorMod(hash, PROCESS_TITLE_LOCKS.length)];
+    }
 
-            } else { // processNew == null || processNewId == null
-                io.setErrorMessage("Process " + io.getProcessTitle() + " already exists. Aborting import");
-                io.setImportReturnValue(ImportReturnValue.NoData);
+    private ImportObject importRecord(HotfolderRecord record, HotfolderFolder hff, NLIExcelImport excelImport, BooleanSupplier leaseHeld) {
+        if (!leaseHeld.getAsBoolean()) {
+            log.warn("NLI hotfolder - not importing {}, the lease was lost and another node imports it", excelImport.getRecordFolder(hff, record));
+            return null;
+        }
+        ImportObject io;
+        org.goobi.beans.Process processNew;
+        org.goobi.beans.Process incompleteProcess =
+                excelImport.isDirectImport() ? getIncompleteProcess(excelImport.getProcessTitle(record), excelImport) : null;
+        if (incompleteProcess != null) {
+            io = new ImportObject();
+            processNew = completeIncompleteProcess(record, hff, excelImport, io, incompleteProcess);
+        } else {
+            io = excelImport.generateFile(record, hff);
+            if (io == null) {
+                return null;
             }
 
+            // preparing the files may take long, so check again that no other node took over the record in the meantime
+            if (io.getImportReturnValue() == ImportReturnValue.ExportFinished && !leaseHeld.getAsBoolean()) {
+                log.warn("NLI hotfolder - not creating process {}, the lease was lost and another node imports it", io.getProcessTitle());
+                excelImport.deleteTempImportData(io);
+                return null;
+            }
+
+            processNew = createProcess(record, hff, excelImport, io);
+        }
+        if (processNew != null) {
+            // log owner name into process journal and metadata
+            logOwnerName(hff, processNew);
+            hff.deleteOwnerFile(processNew.getTitel());
+            //close first step
+            closeFirstStep(new HelperSchritte(), processNew);
+
+            // delete source files if configured so
+            deleteSourceFiles(record, hff, excelImport, leaseHeld);
+
         } else if (io.getImportReturnValue() == ImportReturnValue.DataAllreadyExists) {
             //record exists and was overwritten. Temp import files have already been deleted. Just delete source folder
-            if (excelImport.shouldDeleteSourceFiles()) {
-                excelImport.deleteSourceFiles(hff, record);
-            }
+            deleteSourceFiles(record, hff, excelImport, leaseHeld);
         } // what about ImportReturnValue.NoData and ImportReturnValue.WriteError? - Zehong
 
         // delete temporary data anyway, no harm even if there were none
@@ -149,6 +252,158 @@ public class NLIHotfolderImport {
         return io;
     }
 
+    private void deleteSourceFiles(HotfolderRecord record, HotfolderFolder hff, NLIExcelImport excelImport, BooleanSupplier leaseHeld) {
+        if (!excelImport.shouldDeleteSourceFiles()) {
+            return;
+        }
+        if (!leaseHeld.getAsBoolean()) {
+            log.warn("NLI hotfolder - keeping the source files of {}, the lease was lost and another node may import them",
+                    excelImport.getRecordFolder(hff, record));
+            return;
+        }
+        excelImport.deleteSourceFiles(hff, record);
+    }
+
+    /**
+     * create the process of a record whose files were prepared, and copy its images if they are imported directly
+     * 
+     * @param record the record
+     * @param hff HotfolderFolder
+     * @param excelImport NLIExcelImport
+     * @param io ImportObject of the record, which will be modified if the process cannot be created
+     * @return the new process, or null if no process was created
+     */
+    private org.goobi.beans.Process createProcess(HotfolderRecord record, HotfolderFolder hff, NLIExcelImport excelImport, ImportObject io) {
+        if (io.getImportReturnValue() != ImportReturnValue.ExportFinished) {
+            return null;
+        }
+        // the process is saved before the images of a direct import are copied, so mark it until the copy is done
+        boolean markIncomplete = excelImport.isDirectImport() && ProcessManager.getProcessByExactTitle(io.getProcessTitle()) == null;
+        if (markIncomplete) {
+            try {
+                excelImport.markProcessIncomplete(io.getProcessTitle(), record, hff);
+            } catch (IOException e) {
+                io.setErrorMessage("Could not mark process " + io.getProcessTitle() + " as incomplete: " + e.getMessage());
+                io.setImportReturnValue(ImportReturnValue.WriteError);
+                return null;
+            }
+        }
+        //create new process
+        org.goobi.beans.Process template = templateCache.getTemplate(hff.getTemplateName());
+        org.goobi.beans.Process processNew = JobCreation.generateProcess(io, template);
+        if (processNew == null || processNew.getId() == null) {
+            if (markIncomplete) {
+                excelImport.markProcessComplete(io.getProcessTitle());
+            }
+            io.setErrorMessage("Process " + io.getProcessTitle() + " already exists. Aborting import");
+            io.setImportReturnValue(ImportReturnValue.NoData);
+            return null;
+        }
+        log.info("NLI hotfolder - created process: " + processNew.getId());
+
+        if (excelImport.isDirectImport() && !copyImagesIntoProcess(record, hff, excelImport, io, processNew)) {
+            return null;
+        }
+        return processNew;
+    }
+
+    /**
+     * get the process of a direct import that was created by an earlier run which ended before the images were copied. The source files are only
+     * deleted once the images were copied, so they are still available.
+     * 
+     * @param processTitle title of the process
+     * @param excelImport NLIExcelImport
+     * @return the process, or null if there is no incomplete process of this title
+     */
+    private org.goobi.beans.Process getIncompleteProcess(String processTitle, NLIExcelImport excelImport) {
+        if (!excelImport.isProcessIncomplete(processTitle)) {
+            return null;
+        }
+        org.goobi.beans.Process incompleteProcess = ProcessManager.getProcessByExactTitle(processTitle);
+        if (incompleteProcess == null) {
+            // the run ended before the process was saved
+            excelImport.markProcessComplete(processTitle);
+        }
+        return incompleteProcess;
+    }
+
+    /**
+     * copy the images into the process of a direct import that was left incomplete by an earlier run, instead of creating the process again. With
+     * resumableCopy, the files that the earlier run copied already are not copied again.
+     * 
+     * @param record the record
+     * @param hff HotfolderFolder
+     * @param excelImport NLIExcelImport
+     * @param io ImportObject of the record, which will be filled
+     * @param process the incomplete process
+     * @return the process, or null if the images could not be copied and the process was deleted
+     */
+    private org.goobi.beans.Process completeIncompleteProcess(HotfolderRecord record, HotfolderFolder hff, NLIExcelImport excelImport,
+            ImportObject io, org.goobi.beans.Process process) {
+        log.warn("NLI hotfolder - copying the images into process {} again, they were not copied completely by an earlier run", process.getTitel());
+        io.setProcessTitle(process.getTitel());
+        Path recordFolder = excelImport.getRecordFolder(hff, record);
+        if (recordFolder != null) {
+            io.setImportFileName(recordFolder.toString());
+        }
+        if (!copyImagesIntoProcess(record, hff, excelImport, io, process)) {
+            return null;
+        }
+        io.setImportReturnValue(ImportReturnValue.ExportFinished);
+        return process;
+    }
+
+    /**
+     * copy the images of a direct import into its process, and delete the process if they cannot be copied, so that the record is imported again by
+     * the next run. The incomplete mark of the process is removed in either case.
+     * 
+     * @return true if the images were copied
+     */
+    private boolean copyImagesIntoProcess(HotfolderRecord record, HotfolderFolder hff, NLIExcelImport excelImport, ImportObject io,
+            org.goobi.beans.Process process) {
+        try {
+            excelImport.copyImagesIntoNewProcess(record, hff, process);
+            return true;
+        } catch (ImportException e) {
+            log.error("NLI hotfolder - failed to copy the images into process " + process.getId() + ": " + e.getMessage());
+            deleteProcess(process);
+            io.setErrorMessage("Could not copy the images into process " + io.getProcessTitle() + ": " + e.getMessage());
+            io.setImportReturnValue(ImportReturnValue.WriteError);
+            return false;
+        } finally {
+            excelImport.markProcessComplete(io.getProcessTitle());
+        }
+    }
+
+    private void closeFirstStep(HelperSchritte hs, org.goobi.beans.Process process) {
+        if (stepCloser != null) {
+            try {
+                stepCloser.closeFirstStep(process);
+                return;
+            } catch (InterruptedException e) {
+                // close the step right away instead of leaving it open
+                log.warn("NLI hotfolder - interrupted while waiting to queue the first step of process " + process.getId());
+                Thread.currentThread().interrupt();
+            }
+        }
+        Step firstOpenStep = process.getFirstOpenStep();
+        hs.CloseStepObjectAutomatic(firstOpenStep);
+    }
+
+    /**
+     * roll back the creation of a process whose images could not be copied, so that the record is imported again by the next run
+     * 
+     * @param process the new process
+     */
+    private void deleteProcess(org.goobi.beans.Process process) {
+        try {
+            storageProvider.deleteDir(Paths.get(process.getProcessDataDirectory()));
+        } catch (IOException | SwapException e) {
+            log.error("NLI hotfolder - failed to delete the folder of process " + process.getId(), e);
+        }
+        ProcessManager.deleteProcess(process);
+    }
+
     /**
      * Write the owner name taken from the file with .owner extension to process journal and metadata of process
      * 
@@ -220,33 +475,379 @@ public class NLIHotfolderImport {
         }
     }
 
-    private List<ImportObject> addImportObjectsRegardingHotfolderFolder(List<HotfolderRecord> records, HotfolderFolder hff,
+    private List<ImportObject> addImportObjectsRegardingHotfolderFolder(Iterator<HotfolderRecord> records, HotfolderFolder hff,
             NLIExcelImport excelImport) {
-        int lineNumber = 1;
-        List<ImportObject> imports = new ArrayList<>();
+        if (coordinator == null) {
+            return addImportObjects(records, hff, excelImport, null);
+        }
+        // skip the process folders that other nodes import, every claim is released as soon as its record is done
+        ClaimIterator claimedRecords = new ClaimIterator(records, hff, excelImport, coordinator);
+        try {
+            return addImportObjects(claimedRecords, hff, excelImport, claimedRecords);
+        } finally {
+            // claims of records that were read ahead but not started
+            claimedRecords.releaseClaims();
+        }
+    }
+
+    private List<ImportObject> addImportObjects(Iterator<HotfolderRecord> records, HotfolderFolder hff, NLIExcelImport excelImport,
+            ClaimIterator claims) {
         HotfolderScheduler scheduler = new HotfolderScheduler(pluginConfig);
-        for (HotfolderRecord record : records) {
-            lineNumber++;
-            ImportObject io = prepareImportObject(record, hff, excelImport);
-            if (io != null) {
-                imports.add(io);
+        QuotaIterator admittedRecords = null;
+        if (quotas.hasQuota(hff.getTemplateName())) {
+            // leave the remaining records to the following runs once the template used up its quota
+            admittedRecords = new QuotaIterator(records, hff, excelImport, quotas);
+            records = admittedRecords;
+        }
+        int numberOfPrefetches = pluginConfig.getNumberOfCataloguePrefetches();
+        if (numberOfPrefetches > 0) {
+            // request the catalogue records of the following rows while the current ones are imported
+            records = new LookaheadIterator<>(records, numberOfPrefetches, excelImport::prefetchCatalogueRecord);
+        }
+        int numberOfThreads = pluginConfig.getNumberOfRecordThreads();
+        QuotaIterator quota = admittedRecords;
+        try {
+            return runRecords(records, hff, scheduler, numberOfThreads, record -> {
+                ImportObject io = null;
+                try {
+                    io = prepareImportObject(record, hff, excelImport, () -> isLeaseHeld(claims, record));
+                    return io;
+                } finally {
+                    if (quota != null) {
+                        quota.done(record, isImported(io));
+                    }
+                    if (claims != null) {
+                        claims.release(record);
+                    }
+                }
+            });
+        } finally {
+            if (admittedRecords != null) {
+                // records that were read ahead but not started, e.g. because the timeframe elapsed
+                admittedRecords.releasePending();
+            }
+        }
+    }
+
+    private boolean isLeaseHeld(ClaimIterator claims, HotfolderRecord record) {
+        return (runLease == null || runLease.isHeld()) && (claims == null || claims.isHeld(record));
+    }
+
+    private static boolean isImported(ImportObject io) {
+        return io != null && (io.getImportReturnValue() == ImportReturnValue.ExportFinished
+                || io.getImportReturnValue() == ImportReturnValue.DataAllreadyExists);
+    }
+
+    /**
+     * run the given task for the records one after another. No new record is started once the scheduled timeframe elapsed.
+     * 
+     * @param records records of the current HotfolderFolder
+     * @param hff HotfolderFolder
+     * @param scheduler HotfolderScheduler
+     * @param numberOfThreads maximum number of records that are processed at the same time
+     * @param task task that is run for every record, returning null if there is no result
+     * @return the results in the order of the records
+     */
+    private <T> List<T> runRecords(Iterator<HotfolderRecord> records, HotfolderFolder hff, HotfolderScheduler scheduler, int numberOfThreads,
+            Function<HotfolderRecord, T> task) {
+        if (numberOfThreads > 1) {
+            return runRecordsInParallel(records, hff, scheduler, numberOfThreads, task);
+        }
+
+        List<T> results = new ArrayList<>();
+        while (records.hasNext()) {
+            T result = task.apply(records.next());
+            if (result != null) {
+                results.add(result);
             }
             if (!scheduler.shouldRunNow(hff)) {
                 log.debug("canceling import of " + hff + " since the scheduled timeframe elapsed");
                 break;
             }
         }
-        return imports;
+        return results;
+    }
+
+    /**
+     * run the given task for the records with at most numberOfThreads records in flight. No new record is started once the scheduled timeframe
+     * elapsed, but records that are already running are finished. The results are returned in the order of the records.
+     * 
+     * @param records records of the current HotfolderFolder
+     * @param hff HotfolderFolder
+     * @param scheduler HotfolderScheduler
+     * @param numberOfThreads maximum number of records that are processed at the same time
+     * @param task task that is run for every record, returning null if there is no result
+     * @return the results in the order of the records
+     */
+    private <T> List<T> runRecordsInParallel(Iterator<HotfolderRecord> records, HotfolderFolder hff, HotfolderScheduler scheduler,
+            int numberOfThreads, Function<HotfolderRecord, T> task) {
+        String threadPrefix = "nli-hotfolder-record-" + hff.getProjectFolder().getFileName() + "-";
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor =
+                Executors.newFixedThreadPool(numberOfThreads, runnable -> new Thread(runnable, threadPrefix + threadCounter.incrementAndGet()));
+        Semaphore slots = new Semaphore(numberOfThreads);
+
+        List<Future<T>> futures = new ArrayList<>();
+        try {
+            while (records.hasNext()) {
+                if (!scheduler.shouldRunNow(hff)) {
+                    log.debug("canceling import of " + hff + " since the scheduled timeframe elapsed");
+                    break;
+                }
+                // wait for a free slot, so that the schedule is checked right before every record is started
+                slots.acquire();
+                HotfolderRecord record = records.next();
+                futures.add(executor.submit(() -> {
+                    try {
+                        return task.apply(record);
+                    } finally {
+                        slots.release();
+                    }
+                }));
+            }
+        } catch (InterruptedException e) {
+            log.warn("NLI hotfolder - interrupted while importing " + hff + ", no further records will be started");
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            try {
+                T result = future.get();
+                if (result != null) {
+                    results.add(result);
+                }
+            } catch (ExecutionException e) {
+                log.error("NLI hotfolder - unexpected error while importing a record of " + hff + ": " + e.getCause(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * iterator that reads a number of elements ahead of the element that is returned, passing every element to a consumer as soon as it is read
+     */
+    private static class LookaheadIterator<T> implements Iterator<T> {
+        private final Iterator<T> source;
+        private final int lookahead;
+        private final Consumer<T> onRead;
+        private final Deque<T> buffer = new ArrayDeque<>();
+
+        LookaheadIterator(Iterator<T> source, int lookahead, Consumer<T> onRead) {
+            this.source = source;
+            this.lookahead = lookahead;
+            this.onRead = onRead;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !buffer.isEmpty() || source.hasNext();
+        }
+
+        @Override
+        public T next() {
+            // the returned element and the following lookahead elements
+            while (buffer.size() <= lookahead && source.hasNext()) {
+                T element = source.next();
+                onRead.accept(element);
+                buffer.add(element);
+            }
+            if (buffer.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return buffer.poll();
+        }
+    }
+
+    /**
+     * iterator that claims the process folders of the records, skipping the records whose process folders were claimed by other nodes or do not
+     * exist anymore
+     */
+    static class ClaimIterator implements Iterator<HotfolderRecord> {
+        private final Iterator<HotfolderRecord> source;
+        private final HotfolderFolder hff;
+        private final NLIExcelImport excelImport;
+        private final RunCoordinator coordinator;
+        // claims of the records that were returned but are not done yet
+        private final Map<HotfolderRecord, RunCoordinator.Lease> claims = Collections.synchronizedMap(new IdentityHashMap<>());
+        // the claimed record that is returned next, null if none was read yet
+        private HotfolderRecord next;
+
+        ClaimIterator(Iterator<HotfolderRecord> source, HotfolderFolder hff, NLIExcelImport excelImport, RunCoordinator coordinator) {
+            this.source = source;
+            this.hff = hff;
+            this.excelImport = excelImport;
+            this.coordinator = coordinator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && source.hasNext()) {
+                HotfolderRecord record = source.next();
+                Path folder = excelImport.getRecordFolder(hff, record);
+                if (folder == null || !Files.isDirectory(folder)) {
+                    // nothing to import, e.g. because the folder was moved by an earlier run
+                    log.trace("NLI hotfolder: Skipping the record of {}, its process folder does not exist", folder);
+                } else {
+                    claim(record, folder);
+                }
+            }
+            return next != null;
+        }
+
+        private void claim(HotfolderRecord record, Path folder) {
+            try {
+                RunCoordinator.Lease claim = coordinator.tryClaim(folder);
+                if (claim == null) {
+                    log.debug("NLI hotfolder: {} is imported by another node", folder);
+                    return;
+                }
+                claims.put(record, claim);
+                next = record;
+            } catch (IOException e) {
+                log.error("NLI hotfolder - cannot claim {}, leaving it to the next run: {}", folder, e.toString());
+            }
+        }
+
+        @Override
+        public HotfolderRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            HotfolderRecord record = next;
+            next = null;
+            return record;
+        }
+
+        /**
+         * check whether the claim of a record returned by this iterator is still held, and renew it
+         *
+         * @param record the record
+         * @return false if the claim was released or lost
+         */
+        boolean isHeld(HotfolderRecord record) {
+            RunCoordinator.Lease claim = claims.get(record);
+            return claim != null && claim.isHeld();
+        }
+
+        /**
+         * release the claim of a record as soon as it is done
+         *
+         * @param record the record
+         */
+        void release(HotfolderRecord record) {
+            RunCoordinator.Lease claim = claims.remove(record);
+            if (claim != null) {
+                close(claim);
+            }
+        }
+
+        /**
+         * release the claims of the records that were returned but never finished
+         */
+        void releaseClaims() {
+            List<RunCoordinator.Lease> remaining;
+            synchronized (claims) {
+                remaining = new ArrayList<>(claims.values());
+                claims.clear();
+            }
+            remaining.forEach(this::close);
+        }
+
+        private void close(RunCoordinator.Lease claim) {
+            try {
+                claim.close();
+            } catch (IOException e) {
+                log.warn("NLI hotfolder - cannot release the claim of {}: {}", claim.getInfo().getResource(), e.toString());
+            }
+        }
     }
 
-    private Prefs loadPrefs(String workflowTitle) throws ImportException {
-        org.goobi.beans.Process template = ProcessManager.getProcessByTitle(workflowTitle);
-        if (template == null) {
-            throw new InvalidFolderImportException("Error getting config for template '" + workflowTitle + "'. No such process template found");
-        } else if (template.getRegelsatz() == null) {
-            throw new MissingResourcesImportException("No ruleset found for template " + template.getTitel());
+    /**
+     * iterator that ends as soon as the quota of the template of the HotfolderFolder is used up. Only records whose image folders are ready for the
+     * import are counted, the others are passed on without counting them, so that the import reports or cleans them up. What a record counted is
+     * given back if it is not imported after all.
+     */
+    static class QuotaIterator implements Iterator<HotfolderRecord> {
+        private final Iterator<HotfolderRecord> source;
+        private final HotfolderFolder hff;
+        private final NLIExcelImport excelImport;
+        private final TemplateQuotas quotas;
+        // bytes counted for the records that were returned but are not done yet
+        private final Map<HotfolderRecord, Long> pending = Collections.synchronizedMap(new IdentityHashMap<>());
+        // the accepted record that is returned next, null if none was read yet
+        private HotfolderRecord next;
+        private boolean exhausted;
+
+        QuotaIterator(Iterator<HotfolderRecord> source, HotfolderFolder hff, NLIExcelImport excelImport, TemplateQuotas quotas) {
+            this.source = source;
+            this.hff = hff;
+            this.excelImport = excelImport;
+            this.quotas = quotas;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (exhausted || !source.hasNext()) {
+                return false;
+            }
+            HotfolderRecord record = source.next();
+            long size = excelImport.getImportableRecordSize(hff, record);
+            if (size >= 0) {
+                if (!quotas.tryAcquire(hff.getTemplateName(), size)) {
+                    log.info("NLI hotfolder: Template {} used up its quota for this run, the remaining records of {} are imported later",
+                            hff.getTemplateName(), hff.getProjectFolder());
+                    exhausted = true;
+                    return false;
+                }
+                pending.put(record, size);
+            }
+            next = record;
+            return true;
+        }
+
+        /**
+         * finish a record that was returned by this iterator
+         *
+         * @param record the record
+         * @param imported false if no process was created or replaced for the record, so that it does not count
+         */
+        void done(HotfolderRecord record, boolean imported) {
+            Long size = pending.remove(record);
+            if (size != null && !imported) {
+                quotas.release(hff.getTemplateName(), size);
+            }
+        }
+
+        /**
+         * give back what the records counted that were returned but never finished
+         */
+        void releasePending() {
+            synchronized (pending) {
+                for (Long size : pending.values()) {
+                    quotas.release(hff.getTemplateName(), size);
+                }
+                pending.clear();
+            }
+        }
+
+        @Override
+        public HotfolderRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            HotfolderRecord record = next;
+            next = null;
+            return record;
         }
-        return template.getRegelsatz().getPreferences();
     }
 
 }
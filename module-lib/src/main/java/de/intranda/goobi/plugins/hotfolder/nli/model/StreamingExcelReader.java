@@ -0,0 +1,331 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.SAXException;
+
+import de.intranda.goobi.plugins.hotfolder.nli.model.data.ExcelDataObject;
+import de.intranda.goobi.plugins.hotfolder.nli.model.data.HotfolderRecord;
+import de.intranda.goobi.plugins.hotfolder.nli.model.data.MetadataRule;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Reads the records of the first sheet of an .xlsx import file one row at a time. In contrast to {@link NLIExcelImport#generateRecordsFromFile}
+ * the workbook is never loaded as a whole: the sheet xml is parsed with a StAX pull parser and only the shared strings table is kept in memory, so
+ * the memory footprint does not depend on the number of rows.
+ *
+ * Rows are counted the same way as in generateRecordsFromFile, i.e. only rows that are present in the sheet count, and the cell values are
+ * converted the same way as in addRowProcess. The reader must be closed after use.
+ */
+@Log4j2
+public class StreamingExcelReader implements Iterator<HotfolderRecord>, Closeable {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private final OPCPackage pkg;
+    private final ReadOnlySharedStringsTable sharedStrings;
+    private final InputStream sheetStream;
+    private final XMLStreamReader xml;
+
+    private final int rowDataEnd;
+    private final Map<String, String> hotfolderValues;
+    private final MetadataRule idRule;
+
+    private final Map<String, Integer> headerOrder = new HashMap<>();
+    // read only view of headerOrder that is shared by all records
+    private final Map<String, Integer> sharedHeaderOrder = Collections.unmodifiableMap(headerOrder);
+    private int rowCounter = 0;
+    private HotfolderRecord nextRecord;
+    private boolean finished = false;
+
+    /**
+     * the error that ended the iteration early, null if the sheet could be read completely
+     */
+    @Getter
+    private IOException readError;
+
+    /**
+     * open the import file and read everything up to the first data row
+     *
+     * @param importFile the .xlsx file
+     * @param rowHeader number of the header row
+     * @param rowDataStart number of the first data row
+     * @param rowDataEnd number of the last data row
+     * @param hotfolderValues values of the HotfolderFolder that are shared by all records
+     * @param idRule rule used to determine the id of every record
+     * @throws IOException if the file is no valid .xlsx file
+     */
+    public StreamingExcelReader(File importFile, int rowHeader, int rowDataStart, int rowDataEnd, Map<String, String> hotfolderValues,
+            MetadataRule idRule) throws IOException {
+        this.rowDataEnd = rowDataEnd;
+        this.hotfolderValues = hotfolderValues;
+        this.idRule = idRule;
+
+        try {
+            this.pkg = OPCPackage.open(importFile, PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IOException("Cannot open import file " + importFile, e);
+        }
+
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            this.sharedStrings = new ReadOnlySharedStringsTable(pkg);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new IOException("Import file " + importFile + " does not contain any sheet");
+            }
+            this.sheetStream = sheets.next();
+            this.xml = XML_INPUT_FACTORY.createXMLStreamReader(sheetStream);
+
+            readHeader(rowHeader, rowDataStart);
+
+        } catch (IOException e) {
+            pkg.revert();
+            throw e;
+        } catch (OpenXML4JException | SAXException | XMLStreamException e) {
+            pkg.revert();
+            throw new IOException("Cannot read import file " + importFile, e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextRecord == null && !finished) {
+            nextRecord = readNextRecord();
+        }
+        return nextRecord != null;
+    }
+
+    @Override
+    public HotfolderRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        HotfolderRecord record = nextRecord;
+        nextRecord = null;
+        return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        try {
+            xml.close();
+        } catch (XMLStreamException e) {
+            log.debug("Error closing the sheet parser: {}", e.getMessage());
+        }
+        try {
+            sheetStream.close();
+        } finally {
+            // the package was opened read only, so there is nothing to save
+            pkg.revert();
+        }
+    }
+
+    // ======= private methods ======= //
+
+    /**
+     * read the header row and skip all rows before the first data row
+     */
+    private void readHeader(int rowHeader, int rowDataStart) throws XMLStreamException {
+        List<String> headerRow = null;
+        while (rowCounter < rowHeader) {
+            headerRow = readRow();
+            if (headerRow == null) {
+                finished = true;
+                return;
+            }
+            rowCounter++;
+        }
+
+        if (headerRow != null) {
+            for (int i = 0; i < headerRow.size(); i++) {
+                String value = headerRow.get(i);
+                if (value != null) {
+                    headerOrder.put(value, i);
+                }
+            }
+        }
+
+        // find out the first data row
+        while (rowCounter < rowDataStart - 1) {
+            if (readRow() == null) {
+                finished = true;
+                return;
+            }
+            rowCounter++;
+        }
+    }
+
+    /**
+     * read rows until one is found that contains at least one non-empty value
+     *
+     * @return the record of that row, or null if there are no more data rows
+     */
+    private HotfolderRecord readNextRecord() {
+        try {
+            while (rowCounter < rowDataEnd) {
+                List<String> row = readRow();
+                if (row == null) {
+                    break;
+                }
+                rowCounter++;
+
+                String[] values = new String[row.size()];
+                boolean hasValue = false;
+                for (int cn = 0; cn < values.length; cn++) {
+                    String value = row.get(cn) == null ? "" : row.get(cn);
+                    values[cn] = value;
+                    hasValue = hasValue || !value.isEmpty();
+                }
+
+                if (hasValue) {
+                    HotfolderRecord r = new HotfolderRecord();
+                    ExcelDataObject data = new ExcelDataObject(sharedHeaderOrder, values, hotfolderValues);
+                    r.setId(idRule.getValue(data));
+                    r.setObject(data);
+                    return r;
+                }
+            }
+        } catch (XMLStreamException | RuntimeException e) {
+            log.error("Error reading row {} of the import file: {}", rowCounter + 1, e.getMessage());
+            readError = new IOException("Error reading row " + (rowCounter + 1) + " of the import file", e);
+        }
+
+        finished = true;
+        return null;
+    }
+
+    /**
+     * read the next &lt;row&gt; element of the sheet
+     *
+     * @return the cell values of the row indexed by column, with null for cells that are not present in the sheet, or null if there is no more row
+     * @throws XMLStreamException
+     */
+    private List<String> readRow() throws XMLStreamException {
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT && "row".equals(xml.getLocalName())) {
+                return readCells();
+            } else if (event == XMLStreamConstants.END_ELEMENT && "sheetData".equals(xml.getLocalName())) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private List<String> readCells() throws XMLStreamException {
+        List<String> cells = new ArrayList<>();
+        int column = -1;
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT && "c".equals(xml.getLocalName())) {
+                String reference = xml.getAttributeValue(null, "r");
+                column = reference != null ? getColumnIndex(reference) : column + 1;
+                String value = readCellValue(xml.getAttributeValue(null, "t"));
+                while (cells.size() <= column) {
+                    cells.add(null);
+                }
+                cells.set(column, value);
+            } else if (event == XMLStreamConstants.END_ELEMENT && "row".equals(xml.getLocalName())) {
+                break;
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * read the content of a &lt;c&gt; element and convert it the same way as addRowProcess does: booleans become "true" or "false", numbers are
+     * truncated to long values, formulas are represented by their cached result and errors become empty strings
+     *
+     * @param type value of the t attribute of the cell
+     * @return the value of the cell
+     * @throws XMLStreamException
+     */
+    private String readCellValue(String type) throws XMLStreamException {
+        StringBuilder value = new StringBuilder();
+        boolean formula = false;
+        boolean hasValue = false;
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = xml.getLocalName();
+                if ("f".equals(name)) {
+                    formula = true;
+                } else if ("v".equals(name) || "t".equals(name)) {
+                    // <v> holds the value, <t> the text of an inline string
+                    value.append(xml.getElementText());
+                    hasValue = true;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT && "c".equals(xml.getLocalName())) {
+                break;
+            }
+        }
+
+        if (!hasValue || "e".equals(type)) {
+            // none, error, blank
+            return "";
+        }
+
+        String text = value.toString();
+        if (text.isEmpty()) {
+            return "";
+        } else if ("s".equals(type)) {
+            return sharedStrings.getItemAt(Integer.parseInt(text.trim())).getString();
+        } else if ("b".equals(type) && !formula) {
+            return "1".equals(text.trim()) ? "true" : "false";
+        } else if ("str".equals(type) || "inlineStr".equals(type) || formula || "d".equals(type)) {
+            return text;
+        } else {
+            // numeric
+            return String.valueOf((long) Double.parseDouble(text));
+        }
+    }
+
+    /**
+     * get the zero based column index of a cell reference like "AB12"
+     *
+     * @param reference the cell reference
+     * @return the column index
+     */
+    static int getColumnIndex(String reference) {
+        int column = 0;
+        for (int i = 0; i < reference.length(); i++) {
+            char c = reference.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+}
@@ -0,0 +1,78 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.goobi.beans.Process;
+
+import de.intranda.goobi.plugins.hotfolder.nli.model.exceptions.ImportException;
+import de.intranda.goobi.plugins.hotfolder.nli.model.exceptions.InvalidFolderImportException;
+import de.intranda.goobi.plugins.hotfolder.nli.model.exceptions.MissingResourcesImportException;
+import de.sub.goobi.persistence.managers.ProcessManager;
+import lombok.extern.log4j.Log4j2;
+import ugh.dl.Prefs;
+
+/**
+ * Keeps the process templates and their rulesets during an import run, so that they are only loaded once per template instead of once per record.
+ * All HotfolderFolders of the same template share the cached objects. The cache is meant to live for a single run and must be cleared before the
+ * next run starts, so that changes to templates and rulesets are picked up.
+ */
+@Log4j2
+public class TemplateCache {
+
+    private final Map<String, Process> templates = new ConcurrentHashMap<>();
+    private final Map<String, Prefs> preferences = new ConcurrentHashMap<>();
+
+    /**
+     * get the process template with exactly the given title
+     *
+     * @param templateName title of the process template
+     * @return the process template, or null if there is no such template
+     */
+    public Process getTemplate(String templateName) {
+        // computeIfAbsent does not store null, so missing templates are looked up again
+        return templates.computeIfAbsent(templateName, ProcessManager::getProcessByExactTitle);
+    }
+
+    /**
+     * get the ruleset of the given process template
+     *
+     * @param templateName title of the process template
+     * @return the preferences of the ruleset
+     * @throws ImportException if there is no such template or if it has no ruleset
+     */
+    public Prefs getPrefs(String templateName) throws ImportException {
+        Prefs prefs = preferences.get(templateName);
+        if (prefs == null) {
+            prefs = loadPrefs(templateName);
+            if (prefs != null) {
+                // another thread may have loaded the ruleset in the meantime, in that case use its instance
+                Prefs existing = preferences.putIfAbsent(templateName, prefs);
+                if (existing != null) {
+                    prefs = existing;
+                }
+            }
+        }
+        return prefs;
+    }
+
+    /**
+     * remove all cached templates and rulesets
+     */
+    public void clear() {
+        log.debug("NLI hotfolder - clearing cached templates: {}", templates.keySet());
+        templates.clear();
+        preferences.clear();
+    }
+
+    private static Prefs loadPrefs(String workflowTitle) throws ImportException {
+        Process template = ProcessManager.getProcessByTitle(workflowTitle);
+        if (template == null) {
+            throw new InvalidFolderImportException("Error getting config for template '" + workflowTitle + "'. No such process template found");
+        } else if (template.getRegelsatz() == null) {
+            throw new MissingResourcesImportException("No ruleset found for template " + template.getTitel());
+        }
+        return template.getRegelsatz().getPreferences();
+    }
+
+}
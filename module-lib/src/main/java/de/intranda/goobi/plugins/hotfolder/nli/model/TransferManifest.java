@@ -0,0 +1,158 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Records the files of a target folder that were copied completely, so that an interrupted copy of the folder can be resumed. Every copied file is
+ * appended as one JSON line with the size and modification time of its source and an optional checksum. The manifest lies outside of the target
+ * folder, so that it is never imported into a process, and it is deleted once the whole folder was copied.
+ */
+@Log4j2
+public class TransferManifest implements Closeable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path manifestFile;
+    // completed files by the name of the target file
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private BufferedWriter writer;
+
+    private TransferManifest(Path manifestFile) {
+        this.manifestFile = manifestFile;
+    }
+
+    /**
+     * open the manifest of a target folder, reading the files that were completed by previous attempts
+     *
+     * @param manifestFolder folder that holds the manifests
+     * @param targetFolder folder into which the files are copied
+     * @return the manifest
+     * @throws IOException if the manifest folder cannot be created
+     */
+    public static TransferManifest open(Path manifestFolder, Path targetFolder) throws IOException {
+        Files.createDirectories(manifestFolder);
+        String name = UUID.nameUUIDFromBytes(targetFolder.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8)) + ".jsonl";
+        TransferManifest manifest = new TransferManifest(manifestFolder.resolve(name));
+        manifest.read();
+        return manifest;
+    }
+
+    /**
+     * check whether a file was copied completely by a previous attempt and neither the source nor the target changed since then
+     *
+     * @param source the source file
+     * @param target the target file
+     * @return the entry of the file, or null if it has to be copied
+     */
+    public Entry getCompleted(Path source, Path target) {
+        Entry entry = entries.get(target.getFileName().toString());
+        if (entry == null || !source.toString().equals(entry.getSource())) {
+            return null;
+        }
+        try {
+            if (Files.size(source) == entry.getSize() && Files.getLastModifiedTime(source).toMillis() == entry.getLastModified()
+                    && Files.exists(target) && Files.size(target) == entry.getSize()) {
+                return entry;
+            }
+        } catch (IOException e) {
+            log.trace("Cannot check {}: {}", target, e.toString());
+        }
+        return null;
+    }
+
+    /**
+     * record a file that was copied completely
+     *
+     * @param source the source file
+     * @param target the target file
+     * @param checksum checksum of the content, null if none was computed
+     * @throws IOException if the manifest cannot be written
+     */
+    public synchronized void add(Path source, Path target, String checksum) throws IOException {
+        Entry entry = new Entry(target.getFileName().toString(), source.toString(), Files.size(source),
+                Files.getLastModifiedTime(source).toMillis(), checksum);
+        if (writer == null) {
+            writer = Files.newBufferedWriter(manifestFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        writer.write(MAPPER.writeValueAsString(entry));
+        writer.newLine();
+        // the entry has to be on disk before the next file is started, otherwise it would not help after a crash
+        writer.flush();
+        entries.put(entry.getTarget(), entry);
+    }
+
+    /**
+     * delete the manifest after all files were copied
+     *
+     * @throws IOException
+     */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(manifestFile);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private void read() {
+        if (!Files.exists(manifestFile)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(manifestFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (StringUtils.isNotBlank(line)) {
+                    Entry entry = MAPPER.readValue(line, Entry.class);
+                    entries.put(entry.getTarget(), entry);
+                }
+            }
+        } catch (IOException e) {
+            // e.g. the last line is incomplete because of a crash, the entries before are still valid
+            log.debug("Cannot read all entries of {}: {}", manifestFile, e.toString());
+        }
+        if (!entries.isEmpty()) {
+            log.info("Resuming an interrupted copy, {} files were already copied according to {}", entries.size(), manifestFile);
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Entry {
+        // name of the target file
+        private String target;
+        private String source;
+        private long size;
+        // modification time of the source in milliseconds
+        private long lastModified;
+        // CRC32C of the content as hex string, null if no checksum was computed
+        private String checksum;
+    }
+
+}
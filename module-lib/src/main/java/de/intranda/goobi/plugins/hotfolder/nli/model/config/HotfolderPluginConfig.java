@@ -2,7 +2,11 @@ package de.intranda.goobi.plugins.hotfolder.nli.model.config;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.configuration.AbstractFileConfiguration;
 import org.apache.commons.configuration.SubnodeConfiguration;
 import org.apache.commons.configuration.XMLConfiguration;
 import org.apache.commons.configuration.reloading.FileChangedReloadingStrategy;
@@ -12,12 +16,23 @@ import de.sub.goobi.config.ConfigPlugins;
 
 public class HotfolderPluginConfig {
 
+    // values of runOrder, the configured value is matched case-insensitively
+    private static final List<String> RUN_ORDERS = List.of("none", "oldestFirst", "smallestFirst", "weighted", "roundRobin");
+
     private final XMLConfiguration baseConfig;
 
+    // parsed template configurations, cleared whenever the configuration file is reloaded
+    private final Map<String, NLIExcelConfig> excelConfigs = new ConcurrentHashMap<>();
+
     public HotfolderPluginConfig(XMLConfiguration config) {
         this.baseConfig = config;
         baseConfig.setExpressionEngine(new XPathExpressionEngine());
         baseConfig.setReloadingStrategy(new FileChangedReloadingStrategy());
+        baseConfig.addConfigurationListener(event -> {
+            if (event.getType() == AbstractFileConfiguration.EVENT_RELOAD && !event.isBeforeUpdate()) {
+                excelConfigs.clear();
+            }
+        });
     }
 
     public HotfolderPluginConfig(String pluginName) {
@@ -46,6 +61,19 @@ public class HotfolderPluginConfig {
         return myconfig;
     }
 
+    /**
+     * get the parsed configuration of a template. The configuration is only parsed once and then shared until the configuration file changes
+     * 
+     * @param templateName name of the template
+     * @return the configuration of the template, or the general configuration with &lt;template&gt;*&lt;/template&gt;
+     * @throws IllegalArgumentException if there is neither a configuration for the template nor a general configuration
+     */
+    public NLIExcelConfig getExcelConfig(String templateName) {
+        // cached configurations are not read from baseConfig, so trigger the check of the reloading strategy here
+        baseConfig.reload();
+        return excelConfigs.computeIfAbsent(templateName, name -> new NLIExcelConfig(getTemplateConfig(name)));
+    }
+
     public Path getHotfolderPath() {
         return Paths.get(baseConfig.getString("hotfolderPath"));
     }
@@ -84,4 +112,192 @@ public class HotfolderPluginConfig {
         return baseConfig.getBoolean("verifyMediaFiles", true);
     }
 
+    /**
+     * whether the hotfolder should be scanned incrementally using the scan index of the previous run
+     * 
+     * @return true if unchanged folders without data to import should be skipped, false if the whole hotfolder is traversed on every run
+     */
+    public boolean isUseScanIndex() {
+        return baseConfig.getBoolean("useScanIndex", false);
+    }
+
+    /**
+     * whether the hotfolder should be watched for changes in addition to the scheduled scans
+     * 
+     * @return true if project folders should be imported as soon as they remained unchanged for minutesOfInactivity
+     */
+    public boolean isUseWatchService() {
+        return baseConfig.getBoolean("useWatchService", false);
+    }
+
+    /**
+     * time in minutes after which the whole hotfolder is scanned again while it is being watched, as a fallback for lost events
+     * 
+     * @return an integer representing the time, at least 1
+     */
+    public int getFullScanInterval() {
+        return Math.max(baseConfig.getInt("fullScanInterval", 60), 1);
+    }
+
+    /**
+     * time in seconds after which the lease of a run or a claimed folder is taken over by another run if its heartbeat was not renewed
+     *
+     * @return an integer representing the time, at least 30
+     */
+    public int getLeaseTimeout() {
+        return Math.max(baseConfig.getInt("leaseTimeout", 300), 30);
+    }
+
+    /**
+     * whether several Goobi nodes may import from the hotfolder at the same time, each claiming the process folders that it imports
+     *
+     * @return true if the process folders are claimed instead of locking the whole hotfolder
+     */
+    public boolean isClaimFolders() {
+        return baseConfig.getBoolean("claimFolders", false);
+    }
+
+    /**
+     * whether the project folders are distributed over the active Goobi nodes, so that each node only imports its own share
+     *
+     * @return true if each node imports the project folders assigned to it
+     */
+    public boolean isSharding() {
+        return baseConfig.getBoolean("sharding", false);
+    }
+
+    /**
+     * number of project folders that may be imported at the same time
+     * 
+     * @return the size of the worker pool used for the import, at least 1 which means that all project folders are imported one after another
+     */
+    public int getNumberOfImportThreads() {
+        return Math.max(baseConfig.getInt("numberOfImportThreads", 1), 1);
+    }
+
+    /**
+     * number of records of a single project folder that may be imported at the same time
+     * 
+     * @return the maximum number of records in flight per project folder, at least 1 which means that records are imported one after another
+     */
+    public int getNumberOfRecordThreads() {
+        return Math.max(baseConfig.getInt("numberOfRecordThreads", 1), 1);
+    }
+
+    /**
+     * number of image files of one folder that are copied at the same time, if they cannot be linked or renamed
+     * 
+     * @return the number of parallel file streams, at least 1
+     */
+    public int getNumberOfCopyStreams() {
+        return Math.max(baseConfig.getInt("numberOfCopyStreams", 1), 1);
+    }
+
+    /**
+     * whether image files should be hard linked instead of copied if the hotfolder and the import folder lie on the same file system. Linked files
+     * share their content with the files in the hotfolder, so this is disabled unless it is configured explicitly.
+     * 
+     * @return true if hard links should be used
+     */
+    public boolean isUseHardLinks() {
+        return baseConfig.getBoolean("useHardLinks", false);
+    }
+
+    /**
+     * whether copies of image folders should be recorded, so that a copy that was interrupted is resumed by the next run instead of started over
+     * 
+     * @return true if copies should be resumable
+     */
+    public boolean isResumableCopy() {
+        return baseConfig.getBoolean("resumableCopy", false);
+    }
+
+    /**
+     * whether copied image files should be verified with a checksum
+     * 
+     * @return true if checksums should be compared
+     */
+    public boolean isVerifyChecksums() {
+        return baseConfig.getBoolean("verifyChecksums", false);
+    }
+
+    /**
+     * whether the first steps of new processes should be closed in the background instead of by the import itself
+     * 
+     * @return true if steps should be closed asynchronously
+     */
+    public boolean isAsyncStepClosing() {
+        return baseConfig.getBoolean("asyncStepClosing", false);
+    }
+
+    /**
+     * number of steps that are closed in the background at the same time
+     * 
+     * @return the number of threads, at least 1
+     */
+    public int getNumberOfStepClosingThreads() {
+        return Math.max(baseConfig.getInt("numberOfStepClosingThreads", 1), 1);
+    }
+
+    /**
+     * number of steps that may wait to be closed in the background before the import waits for them
+     * 
+     * @return the size of the queue, at least 0
+     */
+    public int getStepClosingQueueSize() {
+        return Math.max(baseConfig.getInt("stepClosingQueueSize", 100), 0);
+    }
+
+    /**
+     * number of catalogue records that are kept, so that they need not be requested again when a record is imported again
+     * 
+     * @return the size of the cache, 0 if records should not be cached
+     */
+    public int getCatalogueCacheSize() {
+        return Math.max(baseConfig.getInt("catalogueCacheSize", 1000), 0);
+    }
+
+    /**
+     * time after which a cached catalogue record is requested again
+     * 
+     * @return the number of minutes
+     */
+    public int getCatalogueCacheMinutes() {
+        return Math.max(baseConfig.getInt("catalogueCacheMinutes", 60), 0);
+    }
+
+    /**
+     * number of following records of a sheet whose catalogue records are requested in the background while a record is imported
+     * 
+     * @return the number of records, 0 if catalogue records should only be requested when they are needed
+     */
+    public int getNumberOfCataloguePrefetches() {
+        return Math.max(baseConfig.getInt("numberOfCataloguePrefetches", 0), 0);
+    }
+
+    /**
+     * order in which the project folders of a run are imported: none, oldestFirst, smallestFirst, weighted or roundRobin
+     * 
+     * @return the order spelled as above regardless of the case in the configuration, none if the folders are imported in the order in which they
+     *         were found
+     */
+    public String getRunOrder() {
+        String runOrder = baseConfig.getString("runOrder", "none").trim();
+        for (String knownOrder : RUN_ORDERS) {
+            if (knownOrder.equalsIgnoreCase(runOrder)) {
+                return knownOrder;
+            }
+        }
+        return runOrder;
+    }
+
+    /**
+     * whether a project folder should only be started if its import is predicted to end within the scheduled timeframe of its template
+     * 
+     * @return true if the duration of the imports should be predicted
+     */
+    public boolean isPredictRunTime() {
+        return baseConfig.getBoolean("predictRunTime", false);
+    }
+
 }
@@ -1,13 +1,14 @@
 package de.intranda.goobi.plugins.hotfolder.nli.model.config;
 
-import java.time.LocalDateTime;
-
-import org.apache.commons.configuration.SubnodeConfiguration;
+import java.time.Duration;
+import java.time.LocalTime;
 
 import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.HotfolderFolder;
 
 public class HotfolderScheduler {
 
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
     private final HotfolderPluginConfig config;
 
     public HotfolderScheduler(HotfolderPluginConfig config) {
@@ -15,35 +16,61 @@ public class HotfolderScheduler {
     }
 
     public boolean shouldRunNow(HotfolderFolder folder) {
-        SubnodeConfiguration templateConfig = config.getTemplateConfig(folder.getTemplateName());
-        Integer startTime = templateConfig.getInt("schedule/start", 0);
-        Integer endTime = templateConfig.getInt("schedule/end", 0);
-        int currentHour = LocalDateTime.now().getHour();
-        boolean run = shouldRunAtTime(currentHour, startTime, endTime);
-        return run;
+        return shouldRunAt(folder.getTemplateName(), LocalTime.now());
+    }
+
+    boolean shouldRunAt(String templateName, LocalTime time) {
+        NLIExcelConfig templateConfig = config.getExcelConfig(templateName);
+        int currentMinute = time.getHour() * 60 + time.getMinute();
+        return shouldRunAtTime(currentMinute, templateConfig.getScheduleStart(), templateConfig.getScheduleEnd());
+    }
+
+    /**
+     * get the time that is left until the scheduled timeframe of the folder's template ends
+     *
+     * @param folder the HotfolderFolder
+     * @return the remaining time, {@link Duration#ZERO} if the folder should not be imported now, or null if the timeframe has no end
+     */
+    public Duration getRemainingTime(HotfolderFolder folder) {
+        return getRemainingTime(folder.getTemplateName(), LocalTime.now());
+    }
+
+    Duration getRemainingTime(String templateName, LocalTime time) {
+        if (!shouldRunAt(templateName, time)) {
+            return Duration.ZERO;
+        }
+        int endTime = config.getExcelConfig(templateName).getScheduleEnd();
+        if (endTime <= 0) {
+            return null;
+        }
+        // an end of 24:00 is midnight of the next day
+        LocalTime end = endTime >= MINUTES_PER_DAY ? LocalTime.MIDNIGHT : LocalTime.of(endTime / 60, endTime % 60);
+        Duration remaining = Duration.between(time, end);
+        // the timeframe ends on the next day
+        return remaining.isNegative() || remaining.isZero() ? remaining.plusMinutes(MINUTES_PER_DAY) : remaining;
     }
 
     /**
-     * returns true for the following cases: 1). 0 < startTime <= currentHour < endTime 2). 0 < endTime <= startTime <= currentHour 3). 0 <
-     * currentHour < endTime <= startTime 4). endTime <= 0 < startTime <= currentHour 5). startTime <= 0 < currentHour < endTime 6). startTime <= 0 &&
-     * endTime <= 0
-     * 
-     * @param currentHour
-     * @param startTime
-     * @param endTime
+     * returns true for the following cases: 1). 0 < startTime <= currentMinute < endTime 2). 0 < endTime <= startTime <= currentMinute 3). 0 <
+     * currentMinute < endTime <= startTime 4). endTime <= 0 < startTime <= currentMinute 5). startTime <= 0 < currentMinute < endTime 6). startTime <=
+     * 0 && endTime <= 0
+     *
+     * @param currentMinute minute of the day
+     * @param startTime minute of the day at which the timeframe starts
+     * @param endTime minute of the day at which the timeframe ends
      * @return
      */
-    private boolean shouldRunAtTime(int currentHour, Integer startTime, Integer endTime) {
+    private boolean shouldRunAtTime(int currentMinute, Integer startTime, Integer endTime) {
         if (startTime > 0 && endTime > 0) {
             if (startTime < endTime) {
-                return currentHour >= startTime && currentHour < endTime;
+                return currentMinute >= startTime && currentMinute < endTime;
             } else {
-                return currentHour >= startTime || currentHour < endTime;
+                return currentMinute >= startTime || currentMinute < endTime;
             }
         } else if (startTime > 0) {
-            return currentHour >= startTime;
+            return currentMinute >= startTime;
         } else if (endTime > 0) {
-            return currentHour < endTime;
+            return currentMinute < endTime;
         } else {
             return true;
         }
@@ -1,15 +1,26 @@
 package de.intranda.goobi.plugins.hotfolder.nli.model.config;
 
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.configuration.HierarchicalConfiguration;
 import org.apache.commons.configuration.SubnodeConfiguration;
+import org.apache.commons.lang3.StringUtils;
 
 import de.intranda.goobi.plugins.hotfolder.nli.model.data.MetadataRule;
-import lombok.Data;
-
-@Data
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * The resolved &lt;config&gt; block of a template. Instances are cached by {@link HotfolderPluginConfig#getExcelConfig(String)} and shared between
+ * all records and threads of an import, so they must not be changed after creation.
+ */
+@Log4j2
+@Getter
 public class NLIExcelConfig {
 
     private String publicationType;
@@ -21,8 +32,8 @@ public class NLIExcelConfig {
     private int rowDataStart;
     private int rowDataEnd;
     private List<MetadataMappingObject> metadataList = new ArrayList<>();
-    private List<PersonMappingObject> personList = new ArrayList<>();
-    private List<GroupMappingObject> groupList = new ArrayList<>();
+    private List<PersonMappingObject> personList = Collections.emptyList();
+    private List<GroupMappingObject> groupList = Collections.emptyList();
     private MetadataRule processIdentifier;
     private MetadataRule processTitle;
     private MetadataRule imageNamePrefix;
@@ -38,8 +49,21 @@ public class NLIExcelConfig {
 
     private boolean moveImage;
     private boolean requireImportFile;
+    private boolean streamImportFile;
+    private boolean replaceExistingProcesses;
+    private boolean moveFiles;
+    private boolean directImport;
     private List<String> mandatoryColumns = new ArrayList<>();
 
+    // minute of the day at which the import of the template may start and has to end, 0 if not restricted
+    private int scheduleStart;
+    private int scheduleEnd;
+    // weight of the template if project folders are ordered by weighted cost or round-robin, higher weights are imported earlier or more often
+    private int schedulePriority;
+    // maximum number of records and megabytes of the template that are imported in a single run, 0 if not restricted
+    private int maxProcessesPerRun;
+    private long maxMegabytesPerRun;
+
     /**
      * loads the &lt;config&gt; block from xml file
      * 
@@ -64,6 +88,16 @@ public class NLIExcelConfig {
 
         moveImage = xmlConfig.getBoolean("/moveImages", true);
         requireImportFile = xmlConfig.getBoolean("/requireImportFile", true);
+        streamImportFile = xmlConfig.getBoolean("/streamImportFile", false);
+        replaceExistingProcesses = xmlConfig.getBoolean("/replaceExistingProcesses", false);
+        moveFiles = xmlConfig.getBoolean("/moveFiles", false);
+        directImport = xmlConfig.getBoolean("/directImport", false);
+
+        scheduleStart = parseTimeOfDay(xmlConfig.getString("/schedule/start", "0"));
+        scheduleEnd = parseTimeOfDay(xmlConfig.getString("/schedule/end", "0"));
+        schedulePriority = Math.max(xmlConfig.getInt("/schedule/priority", 1), 1);
+        maxProcessesPerRun = Math.max(xmlConfig.getInt("/quota/processes", 0), 0);
+        maxMegabytesPerRun = Math.max(xmlConfig.getLong("/quota/megabytes", 0), 0);
 
         allowedFilenames = xmlConfig.getString("/allowedFilenames", ".*\\.(tiff?|pdf|epub)");
 
@@ -76,6 +110,8 @@ public class NLIExcelConfig {
                 metadataList.add(getMetadata(md));
             }
         }
+        metadataList = Collections.unmodifiableList(metadataList);
+        mandatoryColumns = Collections.unmodifiableList(mandatoryColumns);
 
         useOpac = xmlConfig.getBoolean("/useOpac", false);
 
@@ -140,4 +176,34 @@ public class NLIExcelConfig {
     //
     //    }
 
+    /**
+     * parse a time of the schedule, either a full hour like 19 or a time like 18:30. 24 and 24:00 stand for midnight at the end of the day.
+     * 
+     * @param value the configured value
+     * @return the minute of the day, 1440 for midnight at the end of the day, 0 if the value is blank or invalid
+     */
+    static int parseTimeOfDay(String value) {
+        if (StringUtils.isBlank(value)) {
+            return 0;
+        }
+        String trimmed = value.trim();
+        try {
+            if ("24:00".equals(trimmed)) {
+                return 24 * 60;
+            }
+            if (trimmed.contains(":")) {
+                LocalTime time = LocalTime.parse(trimmed, DateTimeFormatter.ofPattern("H:mm"));
+                return time.getHour() * 60 + time.getMinute();
+            }
+            int hour = Integer.parseInt(trimmed);
+            if (hour < 0 || hour > 24) {
+                throw new NumberFormatException("Hour out of range: " + hour);
+            }
+            return hour * 60;
+        } catch (DateTimeParseException | NumberFormatException e) {
+            log.warn("Invalid time in schedule configuration: {}", value);
+            return 0;
+        }
+    }
+
 }
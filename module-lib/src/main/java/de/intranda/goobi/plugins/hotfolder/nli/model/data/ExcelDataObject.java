@@ -2,21 +2,38 @@ package de.intranda.goobi.plugins.hotfolder.nli.model.data;
 
 import java.util.Map;
 
+/**
+ * The values of a single row of an import file. The header lookup and the additional values are shared by all rows of a sheet, so each row only
+ * holds its own cell values.
+ */
 public class ExcelDataObject implements IRecordDataObject {
 
     private final Map<String, Integer> headerOrder;
-    private final Map<Integer, String> rowMap;
+    private final String[] values;
     private final Map<String, String> additionalValues;
 
-    public ExcelDataObject(Map<String, Integer> headerOrder, Map<Integer, String> rowMap, Map<String, String> additionalValues) {
+    /**
+     * 
+     * @param headerOrder map between the header as a string and its column index, shared by all rows of the sheet
+     * @param values the cell values of the row indexed by column, blank cells are represented by empty strings
+     * @param additionalValues values that do not come from the sheet, shared by all rows of the sheet
+     */
+    public ExcelDataObject(Map<String, Integer> headerOrder, String[] values, Map<String, String> additionalValues) {
         this.headerOrder = headerOrder;
-        this.rowMap = rowMap;
+        this.values = values;
         this.additionalValues = additionalValues;
     }
 
     @Override
     public String getValue(String name) {
-        return rowMap.getOrDefault(headerOrder.getOrDefault(name, -1), additionalValues.getOrDefault(name, ""));
+        if (name == null) {
+            return "";
+        }
+        Integer column = headerOrder.get(name);
+        if (column != null && column >= 0 && column < values.length) {
+            return values[column];
+        }
+        return additionalValues.getOrDefault(name, "");
     }
 
 }
@@ -1,6 +1,10 @@
 package de.intranda.goobi.plugins.hotfolder.nli.model.data;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.StringTokenizer;
+import java.util.regex.Pattern;
 
 import org.apache.commons.configuration.HierarchicalConfiguration;
 import org.apache.commons.lang.StringUtils;
@@ -8,15 +12,36 @@ import org.jboss.weld.exceptions.IllegalArgumentException;
 
 import de.sub.goobi.config.ConfigurationHelper;
 import de.sub.goobi.helper.VariableReplacer;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 
+/**
+ * A rule that combines literals, values of the record and variables into a single value. Rules are parsed into segments and their replacement
+ * regex is compiled once on creation, since a rule is evaluated several times for every record.
+ */
 @Data
 public class MetadataRule {
 
+    private static final Pattern SHELFMARK_CHARACTERS = Pattern.compile("[^\\w-]");
+
     private final String rule;
     private final String replacementRegex;
     private final String replacementSubstitution;
 
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final List<Segment> segments;
+
+    // null if the replacement does not change the value
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final Pattern replacementPattern;
+
     public MetadataRule(String rule, String substitution) {
         this(rule, ConfigurationHelper.getInstance().getProcessTitleReplacementRegex(), substitution);
     }
@@ -25,6 +50,8 @@ public class MetadataRule {
         this.rule = rule;
         this.replacementSubstitution = substitution;
         this.replacementRegex = replacementRegex;
+        this.segments = compile(rule);
+        this.replacementPattern = compileReplacement(replacementRegex, substitution);
     }
 
     public String getValue(IRecordDataObject data) {
@@ -32,41 +59,49 @@ public class MetadataRule {
     }
 
     public String getValue(IRecordDataObject data, VariableReplacer vr) {
-        String timestamp = Long.toString(System.currentTimeMillis());
+        String timestamp = null;
         StringBuilder titleValue = new StringBuilder();
-        StringTokenizer tokenizer = new StringTokenizer(this.rule, "+");
-        while (tokenizer.hasMoreTokens()) {
-            String myString = tokenizer.nextToken();
-            /*
-             * wenn der String mit ' anfängt und mit ' endet, dann den Inhalt so übernehmen
-             */
-            if (myString.startsWith("'") && myString.endsWith("'")) {
-                titleValue.append(myString.substring(1, myString.length() - 1));
-            } else if ("Signatur".equalsIgnoreCase(myString) || "Shelfmark".equalsIgnoreCase(myString)) {
-                if (StringUtils.isNotBlank(data.getValue(myString))) {
-                    // replace white spaces with dash, remove other special characters
-                    titleValue.append(data.getValue(myString).replace(" ", "-").replace("/", "-").replaceAll("[^\\w-]", ""));
-                }
-            } else if ("timestamp".equalsIgnoreCase(myString)) {
-                titleValue.append(timestamp);
-            } else if (myString.startsWith("(") || myString.startsWith("{")) {
-                if (vr != null) {
-                    titleValue.append(vr.replace(myString));
-                } else {
-                    titleValue.append(myString);
-                }
-            } else {
-                String s = data.getValue(myString);
-                titleValue.append(s != null ? s : "");
+        for (Segment segment : segments) {
+            switch (segment.getType()) {
+                case LITERAL:
+                    titleValue.append(segment.getValue());
+                    break;
+                case SHELFMARK:
+                    String shelfmark = data.getValue(segment.getValue());
+                    if (StringUtils.isNotBlank(shelfmark)) {
+                        // replace white spaces with dash, remove other special characters
+                        titleValue.append(SHELFMARK_CHARACTERS.matcher(shelfmark.replace(" ", "-").replace("/", "-")).replaceAll(""));
+                    }
+                    break;
+                case TIMESTAMP:
+                    if (timestamp == null) {
+                        timestamp = Long.toString(System.currentTimeMillis());
+                    }
+                    titleValue.append(timestamp);
+                    break;
+                case VARIABLE:
+                    if (vr != null) {
+                        titleValue.append(vr.replace(segment.getValue()));
+                    } else {
+                        titleValue.append(segment.getValue());
+                    }
+                    break;
+                case FIELD:
+                default:
+                    String s = data.getValue(segment.getValue());
+                    titleValue.append(s != null ? s : "");
+                    break;
             }
         }
         String newTitle = titleValue.toString();
         if (newTitle.endsWith("_")) {
             newTitle = newTitle.substring(0, newTitle.length() - 1);
         }
+        if (replacementPattern == null) {
+            return newTitle;
+        }
         // remove non-ascii characters for the sake of TIFF header limits
-        String filteredTitle = newTitle.replaceAll(replacementRegex, replacementSubstitution);
-        return filteredTitle;
+        return replacementPattern.matcher(newTitle).replaceAll(replacementSubstitution);
     }
 
     public static MetadataRule from(HierarchicalConfiguration parentConfig, String path) {
@@ -95,4 +130,64 @@ public class MetadataRule {
         return StringUtils.isBlank(this.rule);
     }
 
+    // ======= private methods ======= //
+
+    /**
+     * split the rule into its segments, which are separated by '+'
+     *
+     * @param rule the rule
+     * @return an unmodifiable list of segments
+     */
+    private static List<Segment> compile(String rule) {
+        if (rule == null) {
+            return Collections.emptyList();
+        }
+        List<Segment> segments = new ArrayList<>();
+        StringTokenizer tokenizer = new StringTokenizer(rule, "+");
+        while (tokenizer.hasMoreTokens()) {
+            String myString = tokenizer.nextToken();
+            /*
+             * wenn der String mit ' anfängt und mit ' endet, dann den Inhalt so übernehmen
+             */
+            if (myString.startsWith("'") && myString.endsWith("'")) {
+                segments.add(new Segment(SegmentType.LITERAL, myString.substring(1, myString.length() - 1)));
+            } else if ("Signatur".equalsIgnoreCase(myString) || "Shelfmark".equalsIgnoreCase(myString)) {
+                segments.add(new Segment(SegmentType.SHELFMARK, myString));
+            } else if ("timestamp".equalsIgnoreCase(myString)) {
+                segments.add(new Segment(SegmentType.TIMESTAMP, myString));
+            } else if (myString.startsWith("(") || myString.startsWith("{")) {
+                segments.add(new Segment(SegmentType.VARIABLE, myString));
+            } else {
+                segments.add(new Segment(SegmentType.FIELD, myString));
+            }
+        }
+        return Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * compile the replacement regex
+     *
+     * @return the compiled pattern, or null if applying it would never change a value
+     */
+    private static Pattern compileReplacement(String replacementRegex, String substitution) {
+        if (replacementRegex == null || (replacementRegex.isEmpty() && StringUtils.isEmpty(substitution))) {
+            return null;
+        }
+        return Pattern.compile(replacementRegex);
+    }
+
+    private enum SegmentType {
+        LITERAL,
+        FIELD,
+        SHELFMARK,
+        TIMESTAMP,
+        VARIABLE
+    }
+
+    @Data
+    private static class Segment {
+        private final SegmentType type;
+        private final String value;
+    }
+
 }
@@ -0,0 +1,123 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.sub.goobi.helper.StorageProviderInterface;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Immutable snapshot of a barcode folder inside a project folder, taken by reading the folder once. All later checks of a run consult the snapshot
+ * instead of listing the folder again.
+ */
+@Log4j2
+@Getter
+public class BarcodeFolder {
+
+    // name of the Thumbs.db file generated by some Windows Systems
+    private static final String THUMBS_DB_FILE = "Thumbs.db";
+
+    private final Path path;
+    // files and folders inside the barcode folder, without Thumbs.db
+    private final List<Path> entries;
+    // the .owner file, null if there is none
+    private final Path ownerFile;
+    // last modification time in milliseconds, -1 if it could not be determined
+    private final long lastModified;
+    private final int numberOfFiles;
+    private final int numberOfFolders;
+
+    private BarcodeFolder(Path path, List<Path> entries, Path ownerFile, long lastModified, int numberOfFiles, int numberOfFolders) {
+        this.path = path;
+        this.entries = entries;
+        this.ownerFile = ownerFile;
+        this.lastModified = lastModified;
+        this.numberOfFiles = numberOfFiles;
+        this.numberOfFolders = numberOfFolders;
+    }
+
+    /**
+     * read the barcode folder once, removing the Thumbs.db file generated by Windows Systems on the way
+     *
+     * @param folderPath path of the barcode folder
+     * @param storageProvider StorageProviderInterface
+     * @param ownerFileExtension extension of the owner file
+     * @return the snapshot of the folder
+     */
+    static BarcodeFolder scan(Path folderPath, StorageProviderInterface storageProvider, String ownerFileExtension) {
+        List<Path> entries = new ArrayList<>();
+        Path ownerFile = null;
+        int numberOfFiles = 0;
+        int numberOfFolders = 0;
+        boolean thumbsDbRemoved = false;
+
+        for (Path file : storageProvider.listFiles(folderPath.toString())) {
+            String fileName = file.getFileName().toString();
+            if (THUMBS_DB_FILE.equals(fileName) && !thumbsDbRemoved) {
+                try {
+                    storageProvider.deleteFile(file);
+                    thumbsDbRemoved = true;
+                    continue;
+                } catch (IOException e) {
+                    log.error("failed to remove the Thumbs.db file from " + folderPath);
+                }
+            }
+            entries.add(file);
+            if (ownerFile == null && fileName.endsWith(ownerFileExtension)) {
+                // there should be at most only one such file
+                ownerFile = file;
+            }
+            if (storageProvider.isDirectory(file)) {
+                numberOfFolders++;
+            } else {
+                numberOfFiles++;
+            }
+        }
+
+        // read the modification time last, since removing Thumbs.db changes it
+        long lastModified = -1;
+        try {
+            lastModified = storageProvider.getLastModifiedDate(folderPath);
+        } catch (IOException e) {
+            log.warn("Unable to check modification date of hotfolder {}: {}", folderPath, e.toString());
+        }
+
+        return new BarcodeFolder(folderPath, Collections.unmodifiableList(entries), ownerFile, lastModified, numberOfFiles, numberOfFolders);
+    }
+
+    /**
+     * get a copy of this snapshot after the owner file was deleted
+     *
+     * @return a snapshot without owner file
+     */
+    BarcodeFolder withoutOwnerFile() {
+        if (ownerFile == null) {
+            return this;
+        }
+        List<Path> remaining = new ArrayList<>(entries);
+        remaining.remove(ownerFile);
+        return new BarcodeFolder(path, Collections.unmodifiableList(remaining), null, lastModified, numberOfFiles - 1, numberOfFolders);
+    }
+
+    /**
+     * get the owner's name of the folder
+     *
+     * @return name of the .owner file without the extension, or an empty string if there is no owner file
+     */
+    public String getOwnerName() {
+        if (ownerFile == null) {
+            return "";
+        }
+        String fileName = ownerFile.getFileName().toString();
+        return fileName.substring(0, fileName.lastIndexOf(".")).trim();
+    }
+
+    public String getName() {
+        return path.getFileName().toString();
+    }
+
+}
@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.StringUtils;
 
@@ -30,8 +31,8 @@ public class HotfolderFolder {
     private List<Path> projectFoldersFileList;
     // list of paths of all folders whose contents are to be imported
     private List<Path> lstProcessFolders;
-    // name of the Thumbs.db file generated by some Windows Systems
-    private static final String THUMBS_DB_FILE = "Thumbs.db";
+    // snapshots of the folders in lstProcessFolders, replaced when an owner file is deleted, which may happen from several threads
+    private final Map<Path, BarcodeFolder> barcodeFolders = new ConcurrentHashMap<>();
     // extension of the owner file
     private static final String OWNER_FILE_EXTENSION = ".owner";
 
@@ -51,15 +52,14 @@ public class HotfolderFolder {
     }
 
     /**
-     * initialize the field lstProcessFolders and remove all Thumbs.db files from all process folders
+     * initialize the field lstProcessFolders and read every process folder once, removing all Thumbs.db files on the way
      */
     private void getImportFolders() {
         lstProcessFolders = new ArrayList<>();
 
         for (Path barcodePath : projectFoldersFileList) {
             if (storageProvider.isDirectory(barcodePath)) {
-                // remove the Thumbs.db file
-                removeThumbsDbFile(barcodePath);
+                barcodeFolders.put(barcodePath, BarcodeFolder.scan(barcodePath, storageProvider, OWNER_FILE_EXTENSION));
                 // add the folder to the list
                 lstProcessFolders.add(barcodePath);
             }
@@ -67,24 +67,16 @@ public class HotfolderFolder {
     }
 
     /**
-     * remove the Thumbs.db file generated by Windows System from the input folder path
+     * get the snapshots of all process folders in the order in which they were listed
      * 
-     * @param folderPath path of the folder from which the Thumbs.db file should be removed
+     * @return a list of BarcodeFolders
      */
-    private void removeThumbsDbFile(Path folderPath) {
-        List<Path> files = storageProvider.listFiles(folderPath.toString());
-        for (Path file : files) {
-            String fileName = file.getFileName().toString();
-            if (THUMBS_DB_FILE.equals(fileName)) {
-                try {
-                    storageProvider.deleteFile(file);
-                    return;
-
-                } catch (IOException e) {
-                    log.error("failed to remove the Thumbs.db file from " + folderPath);
-                }
-            }
+    public List<BarcodeFolder> getBarcodeFolders() {
+        List<BarcodeFolder> folders = new ArrayList<>(lstProcessFolders.size());
+        for (Path barcodePath : lstProcessFolders) {
+            folders.add(barcodeFolders.get(barcodePath));
         }
+        return folders;
     }
 
     /**
@@ -92,30 +84,48 @@ public class HotfolderFolder {
      * 
      * @param minutesOfInactivity the number of minutes since that last time a folder has been modified for it to be included in the returned list
      * @return a list of folders' paths that is ready for the import
-     * @throws IOException
      */
     public List<Path> getCurrentProcessFolders(int minutesOfInactivity) {
         List<Path> lstFoldersToImport = new ArrayList<>();
-
-        for (Path barcodePath : lstProcessFolders) {
-            try {
-                log.trace("looking at {}", barcodePath);
-                Instant lastModified = Instant.ofEpochMilli(storageProvider.getLastModifiedDate(barcodePath));
-                Instant thirtyMinutesAgo = Instant.now().minus(Duration.ofMinutes(minutesOfInactivity));
-                if (minutesOfInactivity == 0 || lastModified.isBefore(thirtyMinutesAgo)) {
-                    log.trace("Adding process folder {} to list", barcodePath);
-                    lstFoldersToImport.add(barcodePath);
-                } else {
-                    log.trace("Not adding process folder {}. Last modified time {} is not before {}", barcodePath, lastModified, thirtyMinutesAgo);
-                }
-            } catch (IOException e) {
-                log.warn("Unable to check modification date of hotfolder {}: {}", barcodePath, e.toString());
+        Instant thirtyMinutesAgo = Instant.now().minus(Duration.ofMinutes(minutesOfInactivity));
+
+        for (BarcodeFolder folder : getBarcodeFolders()) {
+            Path barcodePath = folder.getPath();
+            log.trace("looking at {}", barcodePath);
+            if (folder.getLastModified() < 0) {
+                // the modification date could not be read while scanning
+                continue;
+            }
+            Instant lastModified = Instant.ofEpochMilli(folder.getLastModified());
+            if (minutesOfInactivity == 0 || lastModified.isBefore(thirtyMinutesAgo)) {
+                log.trace("Adding process folder {} to list", barcodePath);
+                lstFoldersToImport.add(barcodePath);
+            } else {
+                log.trace("Not adding process folder {}. Last modified time {} is not before {}", barcodePath, lastModified, thirtyMinutesAgo);
             }
         }
 
         return lstFoldersToImport;
     }
 
+    /**
+     * get the number of files and folders inside the project folder
+     * 
+     * @return the number of entries found when the project folder was read
+     */
+    public int getNumberOfEntries() {
+        return projectFoldersFileList.size();
+    }
+
+    /**
+     * check whether the project folder contains anything that an import could use
+     * 
+     * @return true if there is at least one process folder or an import file
+     */
+    public boolean hasImportContent() {
+        return !lstProcessFolders.isEmpty() || getImportFile() != null;
+    }
+
     /**
      * get the .xlsx file that is used to control the import
      * 
@@ -140,50 +150,16 @@ public class HotfolderFolder {
      */
     public Map<Path, String> getFolderOwnerMap() {
         Map<Path, String> folderOwnerMap = new HashMap<>();
-        for (Path folderPath : lstProcessFolders) {
-            String ownerName = getOwnerName(folderPath);
+        for (BarcodeFolder folder : getBarcodeFolders()) {
+            String ownerName = folder.getOwnerName();
             if (StringUtils.isNotBlank(ownerName)) {
-                folderOwnerMap.put(folderPath, ownerName);
+                folderOwnerMap.put(folder.getPath(), ownerName);
             }
         }
 
         return folderOwnerMap;
     }
 
-    /**
-     * get the owner's name of the folder
-     * 
-     * @param folderPath path of the folder whose owner is to be found
-     * @return name of the .owner file without the extension
-     */
-    private String getOwnerName(Path folderPath) {
-        Path ownerFilePath = getOwnerFilePath(folderPath);
-        if (ownerFilePath != null) {
-            String fileName = ownerFilePath.getFileName().toString();
-            return fileName.substring(0, fileName.lastIndexOf(".")).trim();
-        }
-
-        return "";
-    }
-
-    /**
-     * retrieve the path of the .owner file in the given folder
-     * 
-     * @param folderPath path of the folder from which the .owner file should be located
-     * @return absolute path of the .owner file
-     */
-    private Path getOwnerFilePath(Path folderPath) {
-        for (Path filePath : storageProvider.listFiles(folderPath.toString())) {
-            String fileName = filePath.getFileName().toString();
-            if (fileName.endsWith(OWNER_FILE_EXTENSION)) {
-                // there should be at most only one such file 
-                return filePath;
-            }
-        }
-
-        return null;
-    }
-
     /**
      * delete the .owner file from the given folder path
      * 
@@ -192,10 +168,11 @@ public class HotfolderFolder {
     public void deleteOwnerFile(Path folderPath) {
         log.debug("deleting " + OWNER_FILE_EXTENSION + " file from " + folderPath);
 
-        Path ownerFilePath = getOwnerFilePath(folderPath);
-        if (ownerFilePath != null) {
+        BarcodeFolder folder = barcodeFolders.get(folderPath);
+        if (folder != null && folder.getOwnerFile() != null) {
             try {
-                storageProvider.deleteFile(ownerFilePath);
+                storageProvider.deleteFile(folder.getOwnerFile());
+                barcodeFolders.computeIfPresent(folderPath, (path, current) -> current.withoutOwnerFile());
             } catch (IOException e) {
                 log.error("failed to delete the " + OWNER_FILE_EXTENSION + " file in " + folderPath);
             }
@@ -209,14 +186,10 @@ public class HotfolderFolder {
      * @return
      */
     public boolean deleteOwnerFile(String processTitle) {
-        Map<Path, String> folderOwnerMap = getFolderOwnerMap();
-        for (Map.Entry<Path, String> entry : folderOwnerMap.entrySet()) {
-            Path folderPath = entry.getKey();
-            String folderName = folderPath.getFileName().toString();
-            if (processTitle.endsWith(folderName)) {
-                deleteOwnerFile(folderPath);
-                return true;
-            }
+        BarcodeFolder folder = findOwnedFolder(processTitle);
+        if (folder != null) {
+            deleteOwnerFile(folder.getPath());
+            return true;
         }
         return false;
     }
@@ -228,15 +201,11 @@ public class HotfolderFolder {
      * @return
      */
     public String getOwnerName(String processTitle) {
-        Map<Path, String> folderOwnerMap = getFolderOwnerMap();
-        for (Map.Entry<Path, String> entry : folderOwnerMap.entrySet()) {
-            Path folderPath = entry.getKey();
-            String folderName = folderPath.getFileName().toString();
-            if (processTitle.endsWith(folderName)) {
-                String ownerName = entry.getValue();
-                log.debug("ownerName = " + ownerName);
-                return ownerName;
-            }
+        BarcodeFolder folder = findOwnedFolder(processTitle);
+        if (folder != null) {
+            String ownerName = folder.getOwnerName();
+            log.debug("ownerName = " + ownerName);
+            return ownerName;
         }
 
         // not found
@@ -244,6 +213,21 @@ public class HotfolderFolder {
         return "";
     }
 
+    /**
+     * find the process folder with an owner file whose name is the end of the given process title
+     * 
+     * @param processTitle
+     * @return the snapshot of the folder, or null if there is no such folder
+     */
+    private BarcodeFolder findOwnedFolder(String processTitle) {
+        for (BarcodeFolder folder : getBarcodeFolders()) {
+            if (StringUtils.isNotBlank(folder.getOwnerName()) && processTitle.endsWith(folder.getName())) {
+                return folder;
+            }
+        }
+        return null;
+    }
+
     /**
      * get the extension of the owner file
      * 
@@ -5,6 +5,7 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -28,9 +29,42 @@ public class HotfolderParser {
     }
 
     public List<HotfolderFolder> getImportFolders(Path hotfolderPath, HotfolderPluginConfig config) throws IOException {
-        List<HotfolderFolder> importFolders = traverseHotfolder(hotfolderPath);
-        HotfolderScheduler scheduler = new HotfolderScheduler(config);
+        List<HotfolderFolder> importFolders = config.isUseScanIndex() ? traverseHotfolderIncrementally(hotfolderPath) : traverseHotfolder(hotfolderPath);
         log.info("NLI hotfolder: Traversed import folders. Found " + importFolders.size() + " folders");
+        return order(filterBySchedule(importFolders, config), config);
+    }
+
+    /**
+     * get the HotfolderFolders of the given project folders, e.g. those reported by a {@link HotfolderWatcher}. Project folders that no longer exist
+     * are ignored.
+     * 
+     * @param projectFolders paths of the form hotfolder/template_name/project_name
+     * @param config HotfolderPluginConfig
+     * @return the HotfolderFolders whose template may be imported now
+     */
+    public List<HotfolderFolder> getImportFolders(Collection<Path> projectFolders, HotfolderPluginConfig config) {
+        List<HotfolderFolder> importFolders = new ArrayList<>();
+        for (Path projectPath : projectFolders) {
+            if (storageProvider.isDirectory(projectPath)) {
+                importFolders.add(new HotfolderFolder(projectPath, projectPath.getParent().getFileName().toString(), storageProvider));
+            }
+        }
+        return order(filterBySchedule(importFolders, config), config);
+    }
+
+    /**
+     * let the templates take turns if runOrder is roundRobin, so that a template with many project folders does not hold up the others. The
+     * other orders are applied by the {@link RunPlanner}.
+     */
+    private List<HotfolderFolder> order(List<HotfolderFolder> importFolders, HotfolderPluginConfig config) {
+        if ("roundRobin".equals(config.getRunOrder())) {
+            return TemplateQuotas.interleave(importFolders, config);
+        }
+        return importFolders;
+    }
+
+    private List<HotfolderFolder> filterBySchedule(List<HotfolderFolder> importFolders, HotfolderPluginConfig config) {
+        HotfolderScheduler scheduler = new HotfolderScheduler(config);
         // check schedule to determine whether templates should be ignored or not
         List<String> ignoredTemplates = new ArrayList<>();
         importFolders = importFolders.stream().filter(folder -> {
@@ -82,4 +116,87 @@ public class HotfolderParser {
         return stableBarcodeFolders;
     }
 
+    /**
+     * Traverses the hotfolder like {@link #traverseHotfolder(Path)}, but consults the {@link ScanIndex} of the last run to skip unchanged
+     * directories. Template folders whose modification time did not change are not listed again, and project folders are skipped if they did not
+     * change and contained nothing to import when they were scanned last. Project folders that still contain process folders or an import file are
+     * always scanned, since the import may have to retry them or they may still be waiting for the scheduled timeframe.
+     * 
+     * @param hotfolderPath the path of the hotfolder
+     * @return all project folders that changed or still contain data to import
+     * @throws IOException
+     */
+    private List<HotfolderFolder> traverseHotfolderIncrementally(Path hotfolderPath) throws IOException {
+        ScanIndex index = ScanIndex.load(hotfolderPath);
+        long scanTime = System.currentTimeMillis();
+        int skippedProjects = 0;
+
+        List<HotfolderFolder> hotfolders = new ArrayList<>();
+        try (DirectoryStream<Path> templatesDirStream = Files.newDirectoryStream(hotfolderPath)) {
+            for (Path templatePath : templatesDirStream) {
+                if (!storageProvider.isDirectory(templatePath)) {
+                    continue;
+                }
+                String templateName = templatePath.getFileName().toString();
+                for (String projectName : getProjectNames(templatePath, index, scanTime)) {
+                    Path projectPath = templatePath.resolve(projectName);
+                    String key = templateName + "/" + projectName;
+                    long lastModified = getLastModified(projectPath);
+                    ScanIndex.DirectoryEntry previous = index.getUnchanged(key, lastModified);
+                    if (previous != null && !previous.isPending()) {
+                        index.put(key, previous);
+                        skippedProjects++;
+                        continue;
+                    }
+                    HotfolderFolder hff = new HotfolderFolder(projectPath, templateName, storageProvider);
+                    index.put(key, new ScanIndex.DirectoryEntry(lastModified, scanTime, hff.getNumberOfEntries(), new ArrayList<>(),
+                            hff.hasImportContent()));
+                    hotfolders.add(hff);
+                }
+            }
+        }
+        index.save();
+
+        log.debug("NLI hotfolder: Skipped {} unchanged project folders without data to import", skippedProjects);
+        return hotfolders;
+    }
+
+    /**
+     * get the names of the project folders inside a template folder, from the scan index if the template folder did not change
+     */
+    private List<String> getProjectNames(Path templatePath, ScanIndex index, long scanTime) throws IOException {
+        String key = templatePath.getFileName().toString();
+        long lastModified = getLastModified(templatePath);
+        ScanIndex.DirectoryEntry previous = index.getUnchanged(key, lastModified);
+        if (previous != null) {
+            index.put(key, previous);
+            return previous.getChildren();
+        }
+
+        List<String> projectNames = new ArrayList<>();
+        int numberOfEntries = 0;
+        try (DirectoryStream<Path> projectsDirStream = Files.newDirectoryStream(templatePath)) {
+            for (Path projectPath : projectsDirStream) {
+                numberOfEntries++;
+                if (storageProvider.isDirectory(projectPath)) {
+                    projectNames.add(projectPath.getFileName().toString());
+                }
+            }
+        }
+        index.put(key, new ScanIndex.DirectoryEntry(lastModified, scanTime, numberOfEntries, projectNames, false));
+        return projectNames;
+    }
+
+    /**
+     * get the modification time of a directory, -1 if it cannot be read, which never matches an entry of the scan index
+     */
+    private long getLastModified(Path path) {
+        try {
+            return storageProvider.getLastModifiedDate(path);
+        } catch (IOException e) {
+            log.warn("Unable to check modification date of {}: {}", path, e.toString());
+            return -1;
+        }
+    }
+
 }
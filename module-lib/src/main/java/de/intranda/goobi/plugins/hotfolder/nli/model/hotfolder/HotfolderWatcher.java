@@ -0,0 +1,295 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Watches the hotfolder tree template/project/barcode with a {@link WatchService} and hands project folders to a listener as soon as none of their
+ * barcode folders has changed for the quiet period. The listener returns false if it could not import the folders, e.g. because another import
+ * run holds the lock file, in which case they are offered again after {@link #RETRY_DELAY}.
+ *
+ * Watch services may drop events (OVERFLOW) or fail to register directories, e.g. if the limit of inotify watches is reached or on network file
+ * systems. In that case {@link #isFullScanDue()} returns true until the next full scan, which is also due after the configured interval.
+ */
+@Log4j2
+public class HotfolderWatcher implements Closeable {
+
+    static final Duration RETRY_DELAY = Duration.ofSeconds(10);
+
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+
+    @Getter
+    private final Path hotfolderPath;
+    private final long quietPeriodMillis;
+    private final long fullScanIntervalMillis;
+    private final Predicate<Set<Path>> listener;
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    // last activity per barcode folder, or per file directly inside a project folder
+    private final Map<Path, Long> lastActivity = new ConcurrentHashMap<>();
+
+    private final ExecutorService dispatcher;
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+    private final Thread watcherThread;
+
+    private volatile long lastFullScan;
+    // time at which events were lost, 0 if no events were lost since the last full scan
+    private volatile long fullScanRequestedAt;
+    private volatile boolean running = true;
+
+    /**
+     * create the watcher without starting it
+     *
+     * @param hotfolderPath path of the hotfolder
+     * @param quietPeriod time that a project folder has to remain unchanged before it is handed to the listener
+     * @param fullScanInterval time after which a full scan is due even if no events were lost
+     * @param listener receives the project folders that are ready for the import, returns false if they should be offered again later
+     * @throws IOException if the WatchService cannot be created
+     */
+    public HotfolderWatcher(Path hotfolderPath, Duration quietPeriod, Duration fullScanInterval, Predicate<Set<Path>> listener) throws IOException {
+        this.hotfolderPath = hotfolderPath;
+        this.quietPeriodMillis = quietPeriod.toMillis();
+        this.fullScanIntervalMillis = fullScanInterval.toMillis();
+        this.listener = listener;
+        this.watchService = hotfolderPath.getFileSystem().newWatchService();
+        this.dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nli-hotfolder-watch-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watcherThread = new Thread(this::processEvents, "nli-hotfolder-watcher");
+        this.watcherThread.setDaemon(true);
+    }
+
+    /**
+     * register all directories of the hotfolder and start watching. A full scan is due right after the start, since changes that happened before
+     * are unknown to the watcher.
+     */
+    public void start() {
+        lastFullScan = 0;
+        registerTree(hotfolderPath);
+        watcherThread.start();
+        log.info("NLI hotfolder: watching {} directories below {}", watchedDirectories.size(), hotfolderPath);
+    }
+
+    /**
+     * check whether the hotfolder should be scanned completely, either because events were lost or because the full scan interval elapsed
+     *
+     * @return true if a full scan is due
+     */
+    public boolean isFullScanDue() {
+        return !running || fullScanRequestedAt > 0 || System.currentTimeMillis() - lastFullScan >= fullScanIntervalMillis;
+    }
+
+    /**
+     * record that a full scan has been done
+     *
+     * @param startTime time at which the full scan started, events lost after that time still require another full scan
+     */
+    public void markFullScan(long startTime) {
+        lastFullScan = startTime;
+        if (fullScanRequestedAt <= startTime) {
+            fullScanRequestedAt = 0;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        watcherThread.interrupt();
+        dispatcher.shutdownNow();
+        watchService.close();
+    }
+
+    // ======= package private methods, used by tests ======= //
+
+    /**
+     * record activity for the given path
+     *
+     * @param path a path inside the hotfolder
+     * @param time time of the activity
+     */
+    void recordActivity(Path path, long time) {
+        Path relative = hotfolderPath.relativize(path);
+        if (relative.getNameCount() < 2) {
+            // the hotfolder itself or a template folder, e.g. the run logs or lock files
+            return;
+        }
+        // barcode folder, import file or a project folder that was created or deleted
+        Path key = hotfolderPath.resolve(relative.subpath(0, Math.min(relative.getNameCount(), 3)));
+        lastActivity.merge(key, time, Math::max);
+    }
+
+    /**
+     * find all project folders whose entries have not changed for the quiet period and remove them from the activity map
+     *
+     * @param now current time
+     * @return the ready project folders
+     */
+    Set<Path> collectReadyFolders(long now) {
+        Map<Path, Long> latestPerProject = new HashMap<>();
+        for (Map.Entry<Path, Long> entry : lastActivity.entrySet()) {
+            latestPerProject.merge(getProjectFolder(entry.getKey()), entry.getValue(), Math::max);
+        }
+
+        Set<Path> ready = new HashSet<>();
+        for (Map.Entry<Path, Long> entry : latestPerProject.entrySet()) {
+            if (now - entry.getValue() >= quietPeriodMillis) {
+                ready.add(entry.getKey());
+            }
+        }
+        // remove the entries of the ready projects, unless there was new activity in the meantime
+        lastActivity.entrySet().removeIf(entry -> ready.contains(getProjectFolder(entry.getKey())) && now - entry.getValue() >= quietPeriodMillis);
+        return ready;
+    }
+
+    /**
+     * offer the given project folders again after {@link #RETRY_DELAY}
+     */
+    void requeue(Set<Path> projectFolders, long now) {
+        long time = now - quietPeriodMillis + RETRY_DELAY.toMillis();
+        for (Path projectFolder : projectFolders) {
+            lastActivity.merge(projectFolder, time, Math::max);
+        }
+    }
+
+    // ======= private methods ======= //
+
+    private Path getProjectFolder(Path path) {
+        Path relative = hotfolderPath.relativize(path);
+        return hotfolderPath.resolve(relative.subpath(0, Math.min(relative.getNameCount(), 2)));
+    }
+
+    private void processEvents() {
+        while (running) {
+            try {
+                WatchKey key = watchService.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    handleEvents(key);
+                }
+                dispatchReadyFolders();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                // ClosedWatchServiceException when closed, anything else must not end the watcher silently
+                if (running) {
+                    log.error("NLI hotfolder: unexpected error in hotfolder watcher, a full scan is required", e);
+                    requestFullScan();
+                }
+            }
+        }
+        log.info("NLI hotfolder: stopped watching {}", hotfolderPath);
+    }
+
+    private void handleEvents(WatchKey key) {
+        Path directory = watchedDirectories.get(key);
+        long now = System.currentTimeMillis();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                log.warn("NLI hotfolder: events of {} were lost, a full scan is required", directory);
+                requestFullScan();
+                continue;
+            }
+            if (directory == null) {
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                registerTree(path);
+            }
+            recordActivity(path, now);
+        }
+        if (!key.reset()) {
+            // the directory was deleted
+            watchedDirectories.remove(key);
+        }
+    }
+
+    private void dispatchReadyFolders() {
+        if (!dispatching.compareAndSet(false, true)) {
+            // the previous folders are still being imported, the others stay in the activity map
+            return;
+        }
+        Set<Path> ready = collectReadyFolders(System.currentTimeMillis());
+        if (ready.isEmpty()) {
+            dispatching.set(false);
+            return;
+        }
+        log.debug("NLI hotfolder: project folders ready for the import: {}", ready);
+        dispatcher.execute(() -> {
+            try {
+                if (!listener.test(ready)) {
+                    requeue(ready, System.currentTimeMillis());
+                }
+            } catch (RuntimeException e) {
+                log.error("NLI hotfolder: error importing " + ready, e);
+                requeue(ready, System.currentTimeMillis());
+            } finally {
+                dispatching.set(false);
+            }
+        });
+    }
+
+    private void registerTree(Path start) {
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                    watchedDirectories.put(key, dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    // e.g. the directory was deleted in the meantime
+                    log.debug("NLI hotfolder: cannot watch {}: {}", file, exc.toString());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("NLI hotfolder: cannot watch all directories below {}, a full scan is required: {}", start, e.toString());
+            requestFullScan();
+        }
+    }
+
+    private void requestFullScan() {
+        if (fullScanRequestedAt == 0) {
+            fullScanRequestedAt = System.currentTimeMillis();
+        }
+    }
+
+}
@@ -0,0 +1,188 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Immutable snapshot of an image source folder, read once per record and shared by all checks and copy steps of the record. If requested, the files
+ * are classified by the first bytes of their content instead of their names, which only needs a few bytes per file.
+ */
+@Log4j2
+@Getter
+public class MediaInventory {
+
+    public static final String MIMETYPE_JPEG = "image/jpeg";
+    public static final String MIMETYPE_TIFF = "image/tiff";
+    public static final String MIMETYPE_UNKNOWN = "application/octet-stream";
+
+    // number of bytes that are read to classify a file, enough for the mimetype entry of an epub file
+    private static final int HEADER_SIZE = 64;
+
+    private final Path folder;
+    // files and folders sorted by their names ignoring the case
+    private final List<MediaFile> entries;
+    // last modification time in milliseconds
+    private final long lastModified;
+
+    private MediaInventory(Path folder, List<MediaFile> entries, long lastModified) {
+        this.folder = folder;
+        this.entries = entries;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * read the folder
+     *
+     * @param folder the folder
+     * @param classify whether the media types of the files should be determined from their content
+     * @return the snapshot of the folder
+     * @throws IOException if the folder cannot be read
+     */
+    public static MediaInventory scan(Path folder, boolean classify) throws IOException {
+        List<MediaFile> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+            for (Path path : stream) {
+                BasicFileAttributes attributes;
+                try {
+                    // follows symbolic links, links to files count as regular files
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    // e.g. a broken link
+                    entries.add(new MediaFile(path, false, false, 0, null));
+                    continue;
+                }
+                String mediaType = classify && attributes.isRegularFile() ? detectMediaType(path) : null;
+                entries.add(new MediaFile(path, attributes.isRegularFile(), attributes.isDirectory(), attributes.size(), mediaType));
+            }
+        }
+        entries.sort(Comparator.comparing(file -> file.getName().toUpperCase()));
+        long lastModified = Files.getLastModifiedTime(folder).toMillis();
+        return new MediaInventory(folder, Collections.unmodifiableList(entries), lastModified);
+    }
+
+    /**
+     * count the regular files of the given media type, only available if the inventory was classified
+     *
+     * @param mediaType the mime type
+     * @return the number of files
+     */
+    public int count(String mediaType) {
+        return (int) entries.stream().filter(file -> mediaType.equals(file.getMediaType())).count();
+    }
+
+    public boolean hasRegularFiles() {
+        return entries.stream().anyMatch(MediaFile::isRegularFile);
+    }
+
+    public boolean hasOnlyRegularFiles() {
+        return entries.stream().allMatch(MediaFile::isRegularFile);
+    }
+
+    /**
+     * determine the media type of a file from its first bytes
+     *
+     * @param file the file
+     * @return the mime type, {@link #MIMETYPE_UNKNOWN} if the type is not known or the file cannot be read
+     */
+    static String detectMediaType(Path file) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // read until the header is full or the file ends
+            int read;
+            do {
+                read = channel.read(header);
+            } while (read > 0 && header.hasRemaining());
+        } catch (IOException e) {
+            log.debug("Cannot read the header of {}: {}", file, e.toString());
+            return MIMETYPE_UNKNOWN;
+        }
+        header.flip();
+        return detectMediaType(header);
+    }
+
+    static String detectMediaType(ByteBuffer header) {
+        if (startsWith(header, 0, 0xFF, 0xD8, 0xFF)) {
+            return MIMETYPE_JPEG;
+        }
+        // little and big endian, classic and BigTIFF
+        if (startsWith(header, 0, 'I', 'I', 0x2A, 0x00) || startsWith(header, 0, 'M', 'M', 0x00, 0x2A) || startsWith(header, 0, 'I', 'I', 0x2B, 0x00)
+                || startsWith(header, 0, 'M', 'M', 0x00, 0x2B)) {
+            return MIMETYPE_TIFF;
+        }
+        if (startsWith(header, 0, 0x89, 'P', 'N', 'G')) {
+            return "image/png";
+        }
+        if (startsWith(header, 0, 0x00, 0x00, 0x00, 0x0C, 'j', 'P', 0x20, 0x20)) {
+            return "image/jp2";
+        }
+        if (startsWith(header, 0, '%', 'P', 'D', 'F')) {
+            return "application/pdf";
+        }
+        if (startsWith(header, 0, 'P', 'K', 0x03, 0x04)) {
+            // an epub file is a zip file that starts with the uncompressed entry mimetype
+            return containsAscii(header, 30, "mimetypeapplication/epub+zip") ? "application/epub+zip" : "application/zip";
+        }
+        return MIMETYPE_UNKNOWN;
+    }
+
+    private static boolean startsWith(ByteBuffer header, int offset, int... bytes) {
+        if (header.limit() < offset + bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if ((header.get(offset + i) & 0xFF) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsAscii(ByteBuffer header, int offset, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        int[] values = new int[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            values[i] = bytes[i];
+        }
+        return startsWith(header, offset, values);
+    }
+
+    /**
+     * entry of the folder
+     */
+    @Getter
+    public static class MediaFile {
+        private final Path path;
+        private final boolean regularFile;
+        private final boolean directory;
+        private final long size;
+        // mime type determined from the content, null if the inventory was not classified or the entry is no regular file
+        private final String mediaType;
+
+        MediaFile(Path path, boolean regularFile, boolean directory, long size, String mediaType) {
+            this.path = path;
+            this.regularFile = regularFile;
+            this.directory = directory;
+            this.size = size;
+            this.mediaType = mediaType;
+        }
+
+        public String getName() {
+            return path.getFileName().toString();
+        }
+    }
+
+}
@@ -0,0 +1,436 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Coordinates the import runs of all Goobi nodes that mount the hotfolder. A run, and with claimFolders every process folder, is guarded by a
+ * lease file in the hotfolder. Lease files are created atomically and their modification time is renewed periodically as a heartbeat while they
+ * are held. A lease whose heartbeat is older than the lease timeout, e.g. because the JVM holding it crashed, is taken over by the next node that
+ * tries to acquire it. With sharding, every node also holds a membership lease for as long as it is running, which tells the other nodes which
+ * nodes share the project folders. The pause flag is kept next to the leases.
+ */
+@Log4j2
+public class RunCoordinator {
+
+    public static final String RUNNING_LOCK = "hotfolder_running.lock";
+    public static final String PAUSE_LOCK = "hotfolder_pause.lock";
+
+    private static final String RUNNING_PREFIX = "hotfolder_running";
+    private static final String CLAIM_PREFIX = "hotfolder_claim_";
+    private static final String NODE_PREFIX = "hotfolder_node_";
+    private static final String LOCK_SUFFIX = ".lock";
+
+    // time after which the lock of a shared file is taken over, updating a shared file takes seconds
+    private static final Duration FILE_LOCK_TIMEOUT = Duration.ofMinutes(1);
+    private static final long FILE_LOCK_RETRY_MILLIS = 100;
+
+    // identifies this JVM in the lease files, usually pid@hostname
+    private static final String NODE = ManagementFactory.getRuntimeMXBean().getName();
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final ScheduledExecutorService HEARTBEAT = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "nli-hotfolder-lease-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path hotfolderPath;
+    private final Duration leaseTimeout;
+    // leases of this coordinator whose heartbeats are renewed
+    private final Set<Lease> heldLeases = ConcurrentHashMap.newKeySet();
+    private ScheduledFuture<?> heartbeat;
+
+    public RunCoordinator(Path hotfolderPath, Duration leaseTimeout) {
+        this.hotfolderPath = hotfolderPath;
+        this.leaseTimeout = leaseTimeout;
+    }
+
+    public boolean isPaused() {
+        return Files.exists(hotfolderPath.resolve(PAUSE_LOCK));
+    }
+
+    public void pause() throws IOException {
+        try {
+            Files.createFile(hotfolderPath.resolve(PAUSE_LOCK));
+        } catch (FileAlreadyExistsException e) {
+            // paused already
+        }
+    }
+
+    public void resume() throws IOException {
+        Files.deleteIfExists(hotfolderPath.resolve(PAUSE_LOCK));
+    }
+
+    /**
+     * try to acquire the lease of an import run. An exclusive run does not start while another node runs with its own lease, and a run with its own
+     * lease does not start while an exclusive run is going on, e.g. while the nodes are reconfigured one after another.
+     *
+     * @param exclusive true if no other node may run at the same time, false if every node holds its own lease and the nodes claim the folders they
+     *            import
+     * @return the lease, or null if another run holds it or runs in the other mode
+     * @throws IOException if the lease file cannot be written
+     */
+    public Lease tryAcquireRun(boolean exclusive) throws IOException {
+        String fileName = exclusive ? RUNNING_LOCK : RUNNING_PREFIX + "_" + getFileSafeNodeName() + LOCK_SUFFIX;
+        Lease lease = tryAcquire(hotfolderPath.resolve(fileName), "run");
+        // the leases of the other mode are checked after this lease was taken, so that two nodes starting at the same time cannot both miss the other
+        String otherLeases = exclusive ? RUNNING_PREFIX + "_*" + LOCK_SUFFIX : RUNNING_LOCK;
+        if (lease != null && !getValidLeases(otherLeases).isEmpty()) {
+            log.info("NLI hotfolder - another node runs an import with {} lease, not starting", exclusive ? "its own" : "an exclusive");
+            lease.close();
+            return null;
+        }
+        return lease;
+    }
+
+    /**
+     * try to register this node as a member of the cluster that shares the hotfolder. The lease is renewed until it is closed, so the node remains
+     * a member between its runs.
+     *
+     * @return the lease, or null if the lease of this node is still held, e.g. by a previous instance that was not closed
+     * @throws IOException if the lease file cannot be written
+     */
+    public Lease tryJoin() throws IOException {
+        return tryAcquire(hotfolderPath.resolve(NODE_PREFIX + getFileSafeNodeName() + LOCK_SUFFIX), "node");
+    }
+
+    /**
+     * get the nodes whose membership leases are valid. A node that stopped renewing its lease is left out once the lease expired.
+     *
+     * @return the names of the active nodes
+     */
+    public List<String> getActiveNodes() {
+        List<String> nodes = new ArrayList<>();
+        for (LeaseInfo info : getValidLeases(NODE_PREFIX + "*" + LOCK_SUFFIX)) {
+            if (info.getToken() != null) {
+                nodes.add(info.getNode());
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * get the name of this node as it is written into the leases
+     *
+     * @return the name, usually pid@hostname
+     */
+    public static String getNodeName() {
+        return NODE;
+    }
+
+    /**
+     * try to claim a process folder, so that no other node imports it at the same time
+     *
+     * @param folder the folder
+     * @return the lease, or null if another node claimed the folder
+     * @throws IOException if the lease file cannot be written
+     */
+    public Lease tryClaim(Path folder) throws IOException {
+        String resource = hotfolderPath.relativize(folder).toString();
+        return tryAcquire(hotfolderPath.resolve(CLAIM_PREFIX + hash(resource) + LOCK_SUFFIX), resource);
+    }
+
+    /**
+     * lock a file that the runs of all nodes update, e.g. an index in the hotfolder, so that reading, changing and writing it back is not interleaved
+     * with the update of another node or another thread. The lock is a lease next to the file, it is taken over if its holder stopped renewing it.
+     *
+     * @param file the shared file
+     * @return the lease, which has to be closed after the file was written
+     * @throws IOException if the lock file cannot be written, or if the lock was not released within twice the lock timeout
+     */
+    public static Lease lockFile(Path file) throws IOException {
+        RunCoordinator coordinator = new RunCoordinator(file.getParent(), FILE_LOCK_TIMEOUT);
+        Path lockFile = file.resolveSibling(file.getFileName() + LOCK_SUFFIX);
+        long deadline = System.currentTimeMillis() + 2 * FILE_LOCK_TIMEOUT.toMillis();
+        Lease lease;
+        while ((lease = coordinator.tryAcquire(lockFile, file.getFileName().toString())) == null) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("Timed out waiting for the lock of " + file);
+            }
+            try {
+                Thread.sleep(FILE_LOCK_RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the lock of " + file);
+            }
+        }
+        return lease;
+    }
+
+    /**
+     * get the valid leases of import runs, i.e. those whose heartbeat did not expire
+     *
+     * @return the leases, empty if no import is running
+     */
+    public List<LeaseInfo> getRunningImports() {
+        return getValidLeases(RUNNING_PREFIX + "*" + LOCK_SUFFIX);
+    }
+
+    // ======= private methods ======= //
+
+    private List<LeaseInfo> getValidLeases(String glob) {
+        List<LeaseInfo> leases = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(hotfolderPath, glob)) {
+            for (Path file : files) {
+                LeaseInfo info = readValid(file);
+                if (info != null) {
+                    leases.add(info);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("NLI hotfolder - cannot list the leases {}: {}", glob, e.toString());
+        }
+        return leases;
+    }
+
+    private static String getFileSafeNodeName() {
+        return NODE.replaceAll("[^\\w.-]", "_");
+    }
+
+    private Lease tryAcquire(Path file, String resource) throws IOException {
+        LeaseInfo info = new LeaseInfo(UUID.randomUUID().toString(), NODE, resource, System.currentTimeMillis());
+        if (!create(file, info) && !(removeIfExpired(file) && create(file, info))) {
+            return null;
+        }
+        Lease lease = new Lease(file, info);
+        heldLeases.add(lease);
+        startHeartbeat();
+        return lease;
+    }
+
+    private boolean create(Path file, LeaseInfo info) throws IOException {
+        // CREATE_NEW fails atomically if the file exists, also if two nodes create it at the same time
+        try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            MAPPER.writeValue(out, info);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        }
+    }
+
+    /**
+     * remove the lease file if its heartbeat expired. The file is moved aside atomically first, so that only one node takes over the lease.
+     *
+     * @return true if the file does not exist anymore
+     */
+    private boolean removeIfExpired(Path file) throws IOException {
+        try {
+            if (!isExpired(Files.getLastModifiedTime(file))) {
+                return false;
+            }
+            Path expired = file.resolveSibling(file.getFileName() + "." + UUID.randomUUID() + ".expired");
+            Files.move(file, expired, StandardCopyOption.ATOMIC_MOVE);
+            // the lease may have been taken over and renewed by another node between the check and the move
+            if (!isExpired(Files.getLastModifiedTime(expired))) {
+                // put it back unless a new lease was created in the meantime, a link is not created if the file exists
+                try {
+                    Files.createLink(file, expired);
+                } catch (FileAlreadyExistsException | UnsupportedOperationException e) {
+                    log.warn("NLI hotfolder - cannot restore the lease {}: {}", file.getFileName(), e.toString());
+                } finally {
+                    Files.delete(expired);
+                }
+                return false;
+            }
+            LeaseInfo previous = read(expired);
+            log.warn("NLI hotfolder - taking over the expired lease {} of {}", file.getFileName(), previous == null ? "unknown node" : previous.getNode());
+            Files.delete(expired);
+            return true;
+        } catch (NoSuchFileException e) {
+            // released or taken over by another node in the meantime
+            return true;
+        }
+    }
+
+    private boolean isExpired(FileTime heartbeat) {
+        return System.currentTimeMillis() - heartbeat.toMillis() > leaseTimeout.toMillis();
+    }
+
+    private LeaseInfo readValid(Path file) {
+        try {
+            if (isExpired(Files.getLastModifiedTime(file))) {
+                return null;
+            }
+            LeaseInfo info = read(file);
+            if (info == null) {
+                // just created, the content is not written yet
+                info = new LeaseInfo(null, "unknown node", "run", Files.getLastModifiedTime(file).toMillis());
+            }
+            return info;
+        } catch (IOException e) {
+            // released in the meantime
+            return null;
+        }
+    }
+
+    private static LeaseInfo read(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            return MAPPER.readValue(in, LeaseInfo.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private synchronized void startHeartbeat() {
+        if (heartbeat == null) {
+            long interval = Math.max(leaseTimeout.toMillis() / 3, 1000);
+            heartbeat = HEARTBEAT.scheduleWithFixedDelay(this::renewLeases, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void stopHeartbeatIfIdle() {
+        if (heldLeases.isEmpty() && heartbeat != null) {
+            heartbeat.cancel(false);
+            heartbeat = null;
+        }
+    }
+
+    private void renewLeases() {
+        for (Lease lease : heldLeases) {
+            lease.renew();
+        }
+    }
+
+    private static String hash(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM supports SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * content of a lease file
+     */
+    @Data
+    @NoArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class LeaseInfo {
+        private String token;
+        private String node;
+        private String resource;
+        private long started;
+
+        LeaseInfo(String token, String node, String resource, long started) {
+            this.token = token;
+            this.node = node;
+            this.resource = resource;
+            this.started = started;
+        }
+    }
+
+    /**
+     * a lease held by this node, renewed until it is closed
+     */
+    public class Lease implements Closeable {
+        private final Path file;
+        @Getter
+        private final LeaseInfo info;
+        // set if another node took over the lease because a heartbeat was missed
+        @Getter
+        private volatile boolean lost;
+
+        private Lease(Path file, LeaseInfo info) {
+            this.file = file;
+            this.info = info;
+        }
+
+        private void renew() {
+            if (!isOwned()) {
+                log.error("NLI hotfolder - lost the lease {}, it was taken over by another node", file.getFileName());
+                lost = true;
+                heldLeases.remove(this);
+                return;
+            }
+            try {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException e) {
+                log.warn("NLI hotfolder - cannot renew the lease {}: {}", file.getFileName(), e.toString());
+            }
+        }
+
+        /**
+         * check right before an action that must not be done by two nodes whether the lease is still held, and renew it. A lease whose heartbeat
+         * is overdue, e.g. after a long garbage collection or a stalled file system, may be taken over by another node at any time, so it is given
+         * up instead of renewed.
+         *
+         * @return true if the lease is held and was renewed, so that no other node can take it over for the lease timeout
+         */
+        public boolean isHeld() {
+            if (lost) {
+                return false;
+            }
+            try {
+                long age = System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis();
+                if (age <= leaseTimeout.toMillis() / 2 && isOwned()) {
+                    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                    // the file may have been replaced between the check and the renewal
+                    if (isOwned()) {
+                        return true;
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("NLI hotfolder - cannot check the lease {}: {}", file.getFileName(), e.toString());
+            }
+            log.error("NLI hotfolder - lost the lease {}, its heartbeat is overdue or it was taken over by another node", file.getFileName());
+            lost = true;
+            heldLeases.remove(this);
+            return false;
+        }
+
+        private boolean isOwned() {
+            LeaseInfo current = read(file);
+            return current != null && info.getToken().equals(current.getToken());
+        }
+
+        /**
+         * release the lease, unless another node took it over
+         */
+        @Override
+        public void close() throws IOException {
+            heldLeases.remove(this);
+            stopHeartbeatIfIdle();
+            if (!lost && isOwned()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+}
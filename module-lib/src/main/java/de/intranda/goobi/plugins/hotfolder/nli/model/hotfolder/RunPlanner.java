@@ -0,0 +1,203 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.intranda.goobi.plugins.hotfolder.nli.model.config.HotfolderPluginConfig;
+import de.intranda.goobi.plugins.hotfolder.nli.model.config.HotfolderScheduler;
+import de.intranda.goobi.plugins.hotfolder.nli.model.log.ImportDurationStatistics;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Plans the project folders of an import run. The size of every folder is estimated from the process folders that are ready for the import, the
+ * folders are ordered as configured by runOrder, and if predictRunTime is set, a folder is only started if its import is predicted to end within
+ * the scheduled timeframe of its template. The predictions are based on the durations of previous imports, which are recorded after every folder.
+ * The files of the process folders are only measured if the order or the prediction needs their sizes.
+ */
+@Log4j2
+public class RunPlanner {
+
+    private static final double BYTES_PER_MEGABYTE = 1024d * 1024d;
+
+    private final HotfolderPluginConfig config;
+    private final HotfolderScheduler scheduler;
+    private final ImportDurationStatistics statistics;
+    private final Map<Path, Estimate> estimates = new ConcurrentHashMap<>();
+
+    public RunPlanner(HotfolderPluginConfig config, ImportDurationStatistics statistics) {
+        this.config = config;
+        this.scheduler = new HotfolderScheduler(config);
+        this.statistics = statistics;
+    }
+
+    /**
+     * check whether the run needs to be planned at all
+     *
+     * @param config HotfolderPluginConfig
+     * @return true if the folders are ordered or their durations are predicted
+     */
+    public static boolean isEnabled(HotfolderPluginConfig config) {
+        String runOrder = config.getRunOrder();
+        // round-robin is applied by the HotfolderParser
+        return !("none".equals(runOrder) || "roundRobin".equals(runOrder)) || config.isPredictRunTime();
+    }
+
+    /**
+     * estimate the size of the folders and order them
+     *
+     * @param importFolders the folders of the run
+     * @return the folders in the order in which they should be imported
+     */
+    public List<HotfolderFolder> plan(List<HotfolderFolder> importFolders) {
+        boolean measureSizes = isMeasuringSizes();
+        for (HotfolderFolder folder : importFolders) {
+            estimates.put(folder.getProjectFolder(), estimate(folder, measureSizes));
+        }
+        List<HotfolderFolder> ordered = new ArrayList<>(importFolders);
+        Comparator<HotfolderFolder> order = getOrder(config.getRunOrder());
+        if (order != null) {
+            ordered.sort(order);
+        }
+        return ordered;
+    }
+
+    /**
+     * check right before a folder is imported whether its import can end within the scheduled timeframe
+     *
+     * @param folder the folder
+     * @return false if the import is predicted to take longer than the remaining time
+     */
+    public boolean shouldStart(HotfolderFolder folder) {
+        Estimate estimate = estimates.get(folder.getProjectFolder());
+        if (!config.isPredictRunTime() || estimate == null || estimate.getMillis() < 0) {
+            return true;
+        }
+        Duration remaining = scheduler.getRemainingTime(folder);
+        if (remaining == null || estimate.getMillis() <= remaining.toMillis()) {
+            return true;
+        }
+        log.info("NLI hotfolder: Not starting {}, its import is predicted to take {} s but the timeframe ends in {} s", folder.getProjectFolder(),
+                estimate.getMillis() / 1000, remaining.getSeconds());
+        return false;
+    }
+
+    /**
+     * record the duration of the import of a folder
+     *
+     * @param folder the folder
+     * @param records number of records that were imported
+     * @param millis duration of the import
+     */
+    public void recordImport(HotfolderFolder folder, int records, long millis) {
+        Estimate estimate = estimates.get(folder.getProjectFolder());
+        // durations are only recorded together with the sizes of the folders, since the predictions are based on both
+        if (estimate != null && estimate.getMegabytes() >= 0 && records > 0) {
+            // the size of the records that were imported, assuming that they are as large as the ready folders on average
+            double megabytes = estimate.getRecords() > 0 ? estimate.getMegabytes() * Math.min(records, estimate.getRecords()) / estimate.getRecords() : 0;
+            statistics.add(folder.getTemplateName(), records, megabytes, millis);
+        }
+    }
+
+    /**
+     * store the recorded durations for the next runs
+     *
+     * @throws IOException if they cannot be written
+     */
+    public void save() throws IOException {
+        statistics.save();
+    }
+
+    private boolean isMeasuringSizes() {
+        String runOrder = config.getRunOrder();
+        return config.isPredictRunTime() || "smallestFirst".equals(runOrder) || "weighted".equals(runOrder);
+    }
+
+    private Comparator<HotfolderFolder> getOrder(String runOrder) {
+        switch (runOrder) {
+            case "oldestFirst":
+                return Comparator.comparingLong(folder -> estimates.get(folder.getProjectFolder()).getOldestModification());
+            case "smallestFirst":
+                return Comparator.comparingDouble(folder -> estimates.get(folder.getProjectFolder()).getMegabytes());
+            case "weighted":
+                return Comparator.comparingDouble(folder -> (estimates.get(folder.getProjectFolder()).getMegabytes() + 1)
+                        / config.getExcelConfig(folder.getTemplateName()).getSchedulePriority());
+            case "none":
+            case "roundRobin":
+                return null;
+            default:
+                log.warn("NLI hotfolder: Unknown runOrder {}, importing the folders in the order in which they were found", runOrder);
+                return null;
+        }
+    }
+
+    /**
+     * estimate the size of a folder from its process folders that are ready for the import
+     *
+     * @param folder the folder
+     * @param measureSizes whether the sizes of the files should be read
+     * @return the estimate, whose size is -1 if the files were not measured
+     */
+    Estimate estimate(HotfolderFolder folder, boolean measureSizes) {
+        Set<Path> readyFolders = new HashSet<>(folder.getCurrentProcessFolders(config.getMinutesOfInactivity()));
+        long bytes = 0;
+        long oldestModification = Long.MAX_VALUE;
+        for (BarcodeFolder barcodeFolder : folder.getBarcodeFolders()) {
+            if (!readyFolders.contains(barcodeFolder.getPath())) {
+                continue;
+            }
+            oldestModification = Math.min(oldestModification, barcodeFolder.getLastModified());
+            if (!measureSizes) {
+                continue;
+            }
+            for (Path entry : barcodeFolder.getEntries()) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                    if (attributes.isRegularFile()) {
+                        bytes += attributes.size();
+                    }
+                } catch (IOException e) {
+                    log.trace("Cannot read the size of {}: {}", entry, e.toString());
+                }
+            }
+        }
+        int records = readyFolders.size();
+        if (!measureSizes) {
+            return new Estimate(records, -1, oldestModification, -1);
+        }
+        double megabytes = bytes / BYTES_PER_MEGABYTE;
+        long millis = statistics.predict(folder.getTemplateName(), records, megabytes);
+        log.debug("NLI hotfolder: {} has {} ready process folders with {} MB, predicted import duration {} ms", folder.getProjectFolder(), records,
+                Math.round(megabytes), millis);
+        return new Estimate(records, megabytes, oldestModification, millis);
+    }
+
+    @Getter
+    static class Estimate {
+        private final int records;
+        // size of the ready process folders, -1 if it was not measured
+        private final double megabytes;
+        // last modification of the oldest ready process folder, Long.MAX_VALUE if there is none
+        private final long oldestModification;
+        // predicted duration, -1 if unknown
+        private final long millis;
+
+        private Estimate(int records, double megabytes, long oldestModification, long millis) {
+            this.records = records;
+            this.megabytes = megabytes;
+            this.oldestModification = oldestModification;
+            this.millis = millis;
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Persistent record of the template and project folders of the hotfolder as they were seen by the last scan. It is stored as scanIndex.json in the
+ * hotfolder and allows the next scan to skip directories that did not change since then.
+ *
+ * A directory counts as unchanged if its modification time is the same as in the index and it was modified at least {@link #SAFETY_MARGIN_MILLIS}
+ * before it was indexed. Changes made within the same timestamp granularity as the last scan are thereby never missed, even on file systems that
+ * only store modification times in seconds.
+ */
+@Log4j2
+public class ScanIndex {
+
+    public static final String SCAN_INDEX_FILENAME = "scanIndex.json";
+
+    // modification times closer than this to the time of the scan are not trusted
+    static final long SAFETY_MARGIN_MILLIS = 2000;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path indexFile;
+    // entries read from the index file, keyed by the path relative to the hotfolder
+    private final Map<String, DirectoryEntry> previousEntries;
+    // entries of the current scan, written back by save()
+    private final Map<String, DirectoryEntry> currentEntries = new HashMap<>();
+
+    private ScanIndex(Path indexFile, Map<String, DirectoryEntry> previousEntries) {
+        this.indexFile = indexFile;
+        this.previousEntries = previousEntries;
+    }
+
+    /**
+     * read the scan index of the given hotfolder. If there is no index yet or if it cannot be read, an empty index is returned, so that all
+     * directories are scanned.
+     *
+     * @param hotfolderPath path of the hotfolder
+     * @return the ScanIndex
+     */
+    public static ScanIndex load(Path hotfolderPath) {
+        Path indexFile = hotfolderPath.resolve(SCAN_INDEX_FILENAME);
+        Map<String, DirectoryEntry> entries = new HashMap<>();
+        if (Files.exists(indexFile)) {
+            try (InputStream in = Files.newInputStream(indexFile)) {
+                IndexContent content = MAPPER.readValue(in, IndexContent.class);
+                if (content.getDirectories() != null) {
+                    entries.putAll(content.getDirectories());
+                }
+            } catch (IOException e) {
+                log.warn("NLI hotfolder: Unable to read scan index {}, scanning all folders: {}", indexFile, e.toString());
+                entries.clear();
+            }
+        }
+        return new ScanIndex(indexFile, entries);
+    }
+
+    /**
+     * get the entry of a directory from the last scan if the directory did not change since then
+     *
+     * @param key path of the directory relative to the hotfolder
+     * @param lastModified current modification time of the directory
+     * @return the previous entry, or null if the directory is new or changed
+     */
+    public DirectoryEntry getUnchanged(String key, long lastModified) {
+        DirectoryEntry entry = previousEntries.get(key);
+        if (entry == null || lastModified < 0 || entry.getLastModified() != lastModified
+                || entry.getLastModified() > entry.getScanTime() - SAFETY_MARGIN_MILLIS) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * record a directory for the current scan
+     *
+     * @param key path of the directory relative to the hotfolder
+     * @param entry the entry of the directory
+     */
+    public void put(String key, DirectoryEntry entry) {
+        currentEntries.put(key, entry);
+    }
+
+    /**
+     * write the entries of the current scan to the index file. Directories that were known when the index was loaded but not visited by the current
+     * scan are dropped. The scans of other nodes may have written the index in the meantime, so it is read again while it is locked, and entries
+     * that another scan added or indexed later than this one are kept.
+     */
+    public void save() {
+        try (RunCoordinator.Lease lock = RunCoordinator.lockFile(indexFile)) {
+            Map<String, DirectoryEntry> entries = new HashMap<>(load(indexFile.getParent()).previousEntries);
+            entries.keySet().removeIf(key -> previousEntries.containsKey(key) && !currentEntries.containsKey(key));
+            currentEntries.forEach((key, entry) -> entries.merge(key, entry,
+                    (saved, current) -> saved.getScanTime() > current.getScanTime() ? saved : current));
+
+            IndexContent content = new IndexContent();
+            content.setDirectories(entries);
+            Path tempFile = indexFile.resolveSibling(SCAN_INDEX_FILENAME + "." + UUID.randomUUID() + ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(tempFile)) {
+                    MAPPER.writeValue(out, content);
+                }
+                Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            log.error("NLI hotfolder: Unable to write scan index {}: {}", indexFile, e.toString());
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class DirectoryEntry {
+        // modification time of the directory when it was scanned
+        private long lastModified;
+        // time of the scan
+        private long scanTime;
+        private int numberOfEntries;
+        // names of the sub directories, only kept for template folders
+        private List<String> children = new ArrayList<>();
+        // true if the project folder contained anything to import when it was scanned
+        private boolean pending;
+
+        public DirectoryEntry(long lastModified, long scanTime, int numberOfEntries, List<String> children, boolean pending) {
+            this.lastModified = lastModified;
+            this.scanTime = scanTime;
+            this.numberOfEntries = numberOfEntries;
+            this.children = children;
+            this.pending = pending;
+        }
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class IndexContent {
+        private Map<String, DirectoryEntry> directories = new HashMap<>();
+    }
+
+}
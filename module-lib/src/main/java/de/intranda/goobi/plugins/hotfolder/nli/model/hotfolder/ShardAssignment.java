@@ -0,0 +1,76 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Assigns the project folders of the hotfolder to the active Goobi nodes by consistent hashing of template/project. Every node is placed on a hash
+ * ring several times, and a project folder belongs to the first node that follows its hash on the ring. If a node joins or leaves, only the
+ * project folders next to its positions change their owner.
+ */
+public class ShardAssignment {
+
+    // positions of every node on the ring, which spreads the project folders evenly over few nodes
+    static final int VIRTUAL_NODES = 100;
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    /**
+     * create the assignment for the given nodes
+     *
+     * @param nodes names of the active nodes
+     */
+    public ShardAssignment(Collection<String> nodes) {
+        for (String node : nodes) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * get the node that owns a project folder
+     *
+     * @param templateName template of the project folder
+     * @param projectName name of the project folder
+     * @return the node, or null if there is no active node
+     */
+    public String getOwner(String templateName, String projectName) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(templateName + "/" + projectName));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * keep the project folders that are owned by the given node
+     *
+     * @param importFolders the project folders
+     * @param node the node
+     * @return the project folders of the node in their original order
+     */
+    public List<HotfolderFolder> filter(List<HotfolderFolder> importFolders, String node) {
+        return importFolders.stream()
+                .filter(folder -> node.equals(getOwner(folder.getTemplateName(), folder.getProjectFolder().getFileName().toString())))
+                .collect(Collectors.toList());
+    }
+
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM supports MD5
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
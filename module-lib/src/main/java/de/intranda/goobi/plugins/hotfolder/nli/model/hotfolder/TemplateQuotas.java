@@ -0,0 +1,135 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+import de.intranda.goobi.plugins.hotfolder.nli.model.config.HotfolderPluginConfig;
+import de.intranda.goobi.plugins.hotfolder.nli.model.config.NLIExcelConfig;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Shares an import run between the templates. Every template may import at most the number of records and megabytes configured in its
+ * &lt;quota&gt; block per run, the remaining records are left for the following runs. An instance counts the records of a single run and may be
+ * shared by the threads that import project folders at the same time.
+ */
+@Log4j2
+public class TemplateQuotas {
+
+    private static final long BYTES_PER_MEGABYTE = 1024L * 1024L;
+
+    private final HotfolderPluginConfig config;
+    private final Map<String, Usage> usages = new HashMap<>();
+
+    public TemplateQuotas(HotfolderPluginConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * check whether a record of the template may still be imported in this run and count it if so. The first record of a template is always
+     * accepted, even if it is larger than the quota, so that large records are not left behind forever.
+     *
+     * @param templateName template of the record
+     * @param bytes size of the files of the record
+     * @return false if the quota of the template is used up
+     */
+    public synchronized boolean tryAcquire(String templateName, long bytes) {
+        NLIExcelConfig templateConfig = config.getExcelConfig(templateName);
+        Usage usage = usages.computeIfAbsent(templateName, name -> new Usage());
+        int maxProcesses = templateConfig.getMaxProcessesPerRun();
+        long maxBytes = templateConfig.getMaxMegabytesPerRun() * BYTES_PER_MEGABYTE;
+        if (maxProcesses > 0 && usage.processes >= maxProcesses) {
+            return false;
+        }
+        if (maxBytes > 0 && usage.processes > 0 && usage.bytes + bytes > maxBytes) {
+            return false;
+        }
+        usage.processes++;
+        usage.bytes += bytes;
+        return true;
+    }
+
+    /**
+     * give back what a record counted, because it was not imported after all
+     *
+     * @param templateName template of the record
+     * @param bytes size of the files of the record, as it was counted
+     */
+    public synchronized void release(String templateName, long bytes) {
+        Usage usage = usages.get(templateName);
+        if (usage != null && usage.processes > 0) {
+            usage.processes--;
+            usage.bytes = Math.max(usage.bytes - bytes, 0);
+        }
+    }
+
+    /**
+     * check whether the quotas of the template restrict the import at all
+     *
+     * @param templateName the template
+     * @return true if the template has a quota of records or megabytes
+     */
+    public boolean hasQuota(String templateName) {
+        NLIExcelConfig templateConfig = config.getExcelConfig(templateName);
+        return templateConfig.getMaxProcessesPerRun() > 0 || templateConfig.getMaxMegabytesPerRun() > 0;
+    }
+
+    /**
+     * interleave the folders of the different templates by smooth weighted round-robin. In every round each template gets as many turns as its
+     * weight, spread over the round instead of taken at once. The folders of a template keep their order.
+     *
+     * @param importFolders the folders of a run
+     * @param weight weight of a template, at least 1
+     * @return the interleaved folders
+     */
+    public static List<HotfolderFolder> interleave(List<HotfolderFolder> importFolders, ToIntFunction<String> weight) {
+        Map<String, Deque<HotfolderFolder>> queues = new LinkedHashMap<>();
+        for (HotfolderFolder folder : importFolders) {
+            queues.computeIfAbsent(folder.getTemplateName(), name -> new ArrayDeque<>()).add(folder);
+        }
+        Map<String, Integer> currentWeights = new HashMap<>();
+        List<HotfolderFolder> result = new ArrayList<>(importFolders.size());
+        while (!queues.isEmpty()) {
+            int totalWeight = 0;
+            String selected = null;
+            for (String templateName : queues.keySet()) {
+                int templateWeight = Math.max(weight.applyAsInt(templateName), 1);
+                totalWeight += templateWeight;
+                int current = currentWeights.merge(templateName, templateWeight, Integer::sum);
+                if (selected == null || current > currentWeights.get(selected)) {
+                    selected = templateName;
+                }
+            }
+            currentWeights.merge(selected, -totalWeight, Integer::sum);
+            Deque<HotfolderFolder> queue = queues.get(selected);
+            result.add(queue.poll());
+            if (queue.isEmpty()) {
+                queues.remove(selected);
+                currentWeights.remove(selected);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * interleave the folders of the templates, weighted by the priorities of their schedules
+     *
+     * @param importFolders the folders of a run
+     * @param config HotfolderPluginConfig
+     * @return the interleaved folders
+     */
+    public static List<HotfolderFolder> interleave(List<HotfolderFolder> importFolders, HotfolderPluginConfig config) {
+        return interleave(importFolders, templateName -> config.getExcelConfig(templateName).getSchedulePriority());
+    }
+
+    private static class Usage {
+        private int processes;
+        private long bytes;
+    }
+
+}
@@ -0,0 +1,170 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.RunCoordinator;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Durations of the last imports of project folders per template, stored in importDurations.json inside the hotfolder. The duration of a project
+ * folder is predicted as a * records + b * megabytes, where a and b are fitted by least squares to the last imports of the template.
+ * The runs of several nodes may record imports at the same time, so every run only adds its own imports to the file when it saves.
+ */
+@Log4j2
+public class ImportDurationStatistics {
+
+    public static final String FILENAME = "importDurations.json";
+
+    // number of imports per template that are kept
+    private static final int MAX_SAMPLES = 50;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, List<Sample>>> SAMPLE_MAP = new TypeReference<>() {
+    };
+
+    private final Path file;
+    private final Map<String, List<Sample>> samples;
+    // imports recorded since the statistics were loaded or saved
+    private final Map<String, List<Sample>> addedSamples = new HashMap<>();
+
+    private ImportDurationStatistics(Path file, Map<String, List<Sample>> samples) {
+        this.file = file;
+        this.samples = samples;
+    }
+
+    /**
+     * read the statistics of the hotfolder, starting without statistics if the file does not exist or cannot be read
+     *
+     * @param hotfolderPath the hotfolder
+     * @return the statistics
+     */
+    public static ImportDurationStatistics load(Path hotfolderPath) {
+        Path file = hotfolderPath.resolve(FILENAME);
+        Map<String, List<Sample>> samples = new HashMap<>();
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                samples = MAPPER.readValue(in, SAMPLE_MAP);
+            } catch (IOException e) {
+                log.warn("NLI hotfolder - cannot read the import durations {}, starting without: {}", file, e.toString());
+            }
+        }
+        return new ImportDurationStatistics(file, samples);
+    }
+
+    /**
+     * record the import of a project folder
+     *
+     * @param templateName template of the project folder
+     * @param records number of imported records
+     * @param megabytes size of the imported files
+     * @param millis duration of the import
+     */
+    public synchronized void add(String templateName, int records, double megabytes, long millis) {
+        Sample sample = new Sample(records, megabytes, millis);
+        addSample(samples, templateName, sample);
+        addedSamples.computeIfAbsent(templateName, name -> new ArrayList<>()).add(sample);
+    }
+
+    private static void addSample(Map<String, List<Sample>> samples, String templateName, Sample sample) {
+        List<Sample> list = samples.computeIfAbsent(templateName, name -> new ArrayList<>());
+        list.add(sample);
+        if (list.size() > MAX_SAMPLES) {
+            list.remove(0);
+        }
+    }
+
+    /**
+     * predict the duration of the import of a project folder
+     *
+     * @param templateName template of the project folder
+     * @param records number of records to import
+     * @param megabytes size of the files to import
+     * @return the predicted duration in milliseconds, or -1 if nothing of the template was imported yet
+     */
+    public synchronized long predict(String templateName, int records, double megabytes) {
+        List<Sample> list = samples.get(templateName);
+        if (list == null || list.isEmpty()) {
+            return -1;
+        }
+        // normal equations of millis = a * records + b * megabytes
+        double rr = 0, rm = 0, mm = 0, rt = 0, mt = 0;
+        long totalMillis = 0;
+        long totalRecords = 0;
+        for (Sample sample : list) {
+            rr += (double) sample.getRecords() * sample.getRecords();
+            rm += sample.getRecords() * sample.getMegabytes();
+            mm += sample.getMegabytes() * sample.getMegabytes();
+            rt += (double) sample.getRecords() * sample.getMillis();
+            mt += sample.getMegabytes() * sample.getMillis();
+            totalMillis += sample.getMillis();
+            totalRecords += sample.getRecords();
+        }
+        double determinant = rr * mm - rm * rm;
+        if (determinant > 1e-9 * rr * mm) {
+            double a = (rt * mm - mt * rm) / determinant;
+            double b = (mt * rr - rt * rm) / determinant;
+            if (a >= 0 && b >= 0) {
+                return Math.round(a * records + b * megabytes);
+            }
+        }
+        // too few or too similar imports to separate records and sizes, use the average duration per record
+        if (totalRecords == 0) {
+            return -1;
+        }
+        return Math.round((double) totalMillis / totalRecords * records);
+    }
+
+    /**
+     * add the imports recorded since the last save to the file in the hotfolder. The file is read again while it is locked, so that the imports
+     * that other nodes saved in the meantime are kept, and the statistics are updated with them.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void save() throws IOException {
+        try (RunCoordinator.Lease lock = RunCoordinator.lockFile(file)) {
+            Map<String, List<Sample>> saved = load(file.getParent()).samples;
+            addedSamples.forEach((templateName, list) -> list.forEach(sample -> addSample(saved, templateName, sample)));
+
+            Path tempFile = file.resolveSibling(FILENAME + "." + UUID.randomUUID() + ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(tempFile)) {
+                    MAPPER.writeValue(out, saved);
+                }
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            addedSamples.clear();
+            samples.clear();
+            samples.putAll(saved);
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Sample {
+        private int records;
+        private double megabytes;
+        private long millis;
+    }
+
+}
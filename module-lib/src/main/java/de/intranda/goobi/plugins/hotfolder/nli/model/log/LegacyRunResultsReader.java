@@ -0,0 +1,159 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads the runs of a lastRunResults.json file of the form [[{...},{...}],[{...}]] one result at a time. Only the current result is kept in memory,
+ * so the memory use does not depend on the size of the file, and runs that are not needed can be skipped without mapping their results.
+ *
+ * Usage: call {@link #nextRun()} to move to the next run and then {@link #nextResult()} until it returns null. Results that were not read are skipped
+ * by the next call of nextRun().
+ */
+public class LegacyRunResultsReader implements Closeable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonParser parser;
+    private boolean started = false;
+    private boolean inRun = false;
+
+    public LegacyRunResultsReader(InputStream in) throws IOException {
+        this.parser = MAPPER.getFactory().createParser(in);
+    }
+
+    /**
+     * move to the next run, skipping the remaining results of the current one
+     *
+     * @return false if there are no more runs
+     * @throws IOException if the file is not of the expected form
+     */
+    public boolean nextRun() throws IOException {
+        if (!started) {
+            started = true;
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                // empty file
+                return false;
+            } else if (token != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Expected a list of runs");
+            }
+        }
+        if (inRun) {
+            skipRestOfRun();
+        }
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+            inRun = true;
+            return true;
+        } else if (token == JsonToken.END_ARRAY || token == null) {
+            return false;
+        }
+        throw new JsonParseException(parser, "Expected a list of results");
+    }
+
+    /**
+     * read the next result of the current run
+     *
+     * @return the result, or null at the end of the run
+     * @throws IOException
+     */
+    public GUIImportResult nextResult() throws IOException {
+        while (inRun) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.END_ARRAY || token == null) {
+                inRun = false;
+            } else if (token == JsonToken.START_OBJECT) {
+                return MAPPER.readValue(parser, GUIImportResult.class);
+            } else {
+                // null entries or values that are no results
+                parser.skipChildren();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * get the remaining results of the current run, starting with the given result that was already read
+     *
+     * @param first the result that was read last, null if the run is empty
+     * @return an iterator over the results, which throws an UncheckedIOException if the file cannot be read
+     */
+    public Iterator<GUIImportResult> resultsOfRun(GUIImportResult first) {
+        return new Iterator<>() {
+            private GUIImportResult next = first;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public GUIImportResult next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                GUIImportResult current = next;
+                try {
+                    next = nextResult();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return current;
+            }
+        };
+    }
+
+    /**
+     * check whether a run is older than the cutoff, judging by its first result. All results of a run are created at the end of the run, so the first
+     * timestamp is representative for the whole run.
+     *
+     * @param first first result of the run
+     * @param cutoff oldest time to keep
+     * @return true if the run is older than the cutoff or has no valid timestamp
+     */
+    public static boolean isBefore(GUIImportResult first, LocalDateTime cutoff) {
+        if (first == null || StringUtils.isBlank(first.getTimestamp())) {
+            return true;
+        }
+        try {
+            return LocalDateTime.parse(first.getTimestamp(), GUIImportResult.getFormatter()).isBefore(cutoff);
+        } catch (DateTimeParseException e) {
+            return true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    private void skipRestOfRun() throws IOException {
+        int depth = 1;
+        while (depth > 0) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                break;
+            } else if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            }
+        }
+        inRun = false;
+    }
+
+}
@@ -0,0 +1,358 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.log;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.RunCoordinator;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Stores the results of the import runs in the folder runResults inside the hotfolder. Every run is written once to its own segment file with one
+ * JSON encoded {@link GUIImportResult} per line, and a small index lists the runs from the newest to the oldest. Old runs are dropped by deleting
+ * their segment files, so the results of previous runs are never rewritten.
+ *
+ * The store replaces lastRunResults.json, which is migrated into segments by the first run that appends to the store, see
+ * {@link LegacyRunResultsReader}. Only the import job writes to
+ * the store, readers like the administration plugin never change it. The import runs of several nodes may append at the same time, so appending
+ * holds a lock on the index while it reads it, writes the segment and writes the index back.
+ */
+@Log4j2
+public class RunResultsStore {
+
+    public static final String RESULTS_FOLDER_NAME = "runResults";
+    public static final String LEGACY_RESULTS_FILENAME = "lastRunResults.json";
+
+    private static final String INDEX_FILENAME = "index.json";
+    private static final String SEGMENT_PREFIX = "run-";
+    private static final String SEGMENT_SUFFIX = ".jsonl";
+    private static final Pattern SEGMENT_PATTERN = Pattern.compile(SEGMENT_PREFIX + "(\\d+)-(\\d+)" + Pattern.quote(SEGMENT_SUFFIX));
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<List<RunInfo>> RUN_INFO_LIST = new TypeReference<>() {
+    };
+
+    private final Path hotfolderPath;
+    private final Path resultsFolder;
+    private final Path indexFile;
+
+    public RunResultsStore(Path hotfolderPath) {
+        this.hotfolderPath = hotfolderPath;
+        this.resultsFolder = hotfolderPath.resolve(RESULTS_FOLDER_NAME);
+        this.indexFile = resultsFolder.resolve(INDEX_FILENAME);
+    }
+
+    /**
+     * write the results of a run into a new segment and drop old runs. Only the newest numberOfRuns runs are kept, or if maxAge is set all runs that
+     * are younger than maxAge. The new run is always kept. Segments that the index does not list, e.g. because a run failed before it wrote the
+     * index, are deleted as well.
+     *
+     * @param results results of the run
+     * @param numberOfRuns maximum number of runs to keep, used if maxAge is null
+     * @param maxAge maximum age of the runs to keep, null to retain by number
+     * @throws IOException
+     */
+    public void append(List<GUIImportResult> results, int numberOfRuns, Duration maxAge) throws IOException {
+        Files.createDirectories(resultsFolder);
+        try (RunCoordinator.Lease lock = RunCoordinator.lockFile(indexFile)) {
+            migrateLegacyResults(numberOfRuns, maxAge);
+            List<RunInfo> runs = new ArrayList<>(readIndex());
+            long now = System.currentTimeMillis();
+            runs.add(0, writeSegment(results.iterator(), now));
+
+            List<RunInfo> kept = new ArrayList<>();
+            for (int i = 0; i < runs.size(); i++) {
+                RunInfo run = runs.get(i);
+                if (i == 0 || (maxAge != null ? now - run.getTime() < maxAge.toMillis() : i < numberOfRuns)) {
+                    kept.add(run);
+                }
+            }
+
+            // write the index first, so that it never lists a deleted segment
+            writeIndex(kept);
+            deleteUnlistedSegments(kept);
+        }
+    }
+
+    /**
+     * get the runs that are currently stored, the newest first
+     *
+     * @return a list of RunInfos
+     */
+    public List<RunInfo> getRuns() {
+        try {
+            return readIndex();
+        } catch (IOException e) {
+            log.error("Error reading the index of the run results: {}", e.toString());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * read the results of one run
+     *
+     * @param run the RunInfo of the run
+     * @return the results of the run, empty if the run was dropped in the meantime
+     */
+    public List<GUIImportResult> readRun(RunInfo run) {
+        List<GUIImportResult> results = new ArrayList<>(Math.max(run.getNumberOfResults(), 0));
+        try {
+            readRun(run, results::add);
+        } catch (IOException e) {
+            log.debug("Cannot read the results of run {}: {}", run.getId(), e.toString());
+        }
+        return results;
+    }
+
+    /**
+     * pass the results of one run to the handler one at a time, without holding the run in memory
+     *
+     * @param run the RunInfo of the run
+     * @param handler receives the results in the order they were stored
+     * @throws IOException if the segment cannot be read, e.g. because the run was dropped in the meantime, or if the handler fails
+     */
+    public void readRun(RunInfo run, ResultHandler handler) throws IOException {
+        Path segment = resultsFolder.resolve(run.getId());
+        try (InputStream in = Files.newInputStream(segment);
+                MappingIterator<GUIImportResult> results = MAPPER.readerFor(GUIImportResult.class).readValues(in)) {
+            while (results.hasNextValue()) {
+                handler.handle(results.nextValue());
+            }
+        }
+    }
+
+    /**
+     * get the modification time of the index, which changes whenever a run is added or dropped
+     *
+     * @return the modification time in milliseconds, 0 if there is no index yet
+     */
+    public long getLastModified() {
+        try {
+            return Files.exists(indexFile) ? Files.getLastModifiedTime(indexFile).toMillis() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // ======= private methods ======= //
+
+    private RunInfo writeSegment(Iterator<GUIImportResult> results, long time) throws IOException {
+        Files.createDirectories(resultsFolder);
+        // runs in the same millisecond, e.g. during the migration, are distinguished by a sequence number
+        int sequence = 0;
+        String id = segmentName(time, sequence);
+        while (Files.exists(resultsFolder.resolve(id))) {
+            id = segmentName(time, ++sequence);
+        }
+
+        Path tempFile = resultsFolder.resolve(id + "." + UUID.randomUUID() + ".tmp");
+        int numberOfResults = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            while (results.hasNext()) {
+                writer.write(MAPPER.writeValueAsString(results.next()));
+                writer.newLine();
+                numberOfResults++;
+            }
+        } catch (IOException | UncheckedIOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        try {
+            // a segment with the same name may have been written by a node whose lock was taken over, the move does not replace it
+            while (true) {
+                try {
+                    Files.move(tempFile, resultsFolder.resolve(id), StandardCopyOption.ATOMIC_MOVE);
+                    break;
+                } catch (FileAlreadyExistsException e) {
+                    id = segmentName(time, ++sequence);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        return new RunInfo(id, time, numberOfResults);
+    }
+
+    private void deleteUnlistedSegments(List<RunInfo> runs) throws IOException {
+        Set<String> listed = new HashSet<>();
+        for (RunInfo run : runs) {
+            listed.add(run.getId());
+        }
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(resultsFolder, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : segments) {
+                if (!listed.contains(segment.getFileName().toString())) {
+                    Files.deleteIfExists(segment);
+                }
+            }
+        }
+    }
+
+    private static String segmentName(long time, int sequence) {
+        return SEGMENT_PREFIX + time + "-" + sequence + SEGMENT_SUFFIX;
+    }
+
+    private List<RunInfo> readIndex() throws IOException {
+        if (!Files.exists(indexFile)) {
+            return rebuildIndex();
+        }
+        try (InputStream in = Files.newInputStream(indexFile)) {
+            return MAPPER.readValue(in, RUN_INFO_LIST);
+        } catch (IOException e) {
+            log.warn("Index of the run results {} cannot be read, rebuilding it: {}", indexFile, e.toString());
+            return rebuildIndex();
+        }
+    }
+
+    /**
+     * recreate the index from the names of the segment files, e.g. if it was deleted
+     */
+    private List<RunInfo> rebuildIndex() throws IOException {
+        List<RunInfo> runs = new ArrayList<>();
+        if (!Files.isDirectory(resultsFolder)) {
+            return runs;
+        }
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(resultsFolder, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : segments) {
+                Matcher matcher = SEGMENT_PATTERN.matcher(segment.getFileName().toString());
+                if (matcher.matches()) {
+                    int numberOfResults;
+                    try (Stream<String> lines = Files.lines(segment, StandardCharsets.UTF_8)) {
+                        numberOfResults = (int) lines.filter(StringUtils::isNotBlank).count();
+                    }
+                    runs.add(new RunInfo(segment.getFileName().toString(), Long.parseLong(matcher.group(1)), numberOfResults));
+                }
+            }
+        }
+        runs.sort(Comparator.comparingLong(RunInfo::getTime).thenComparing(RunInfo::getId).reversed());
+        // the index is written by the next run that appends to the store
+        return runs;
+    }
+
+    private void writeIndex(List<RunInfo> runs) throws IOException {
+        Files.createDirectories(resultsFolder);
+        Path tempFile = resultsFolder.resolve(INDEX_FILENAME + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                MAPPER.writeValue(out, runs);
+            }
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * move the runs of lastRunResults.json into segments and rename the file, so that the migration only happens once. The file is read one result
+     * at a time, and reading stops at the first run that would be dropped by the retention anyway, so the memory use does not depend on the size
+     * of the file. It is only called while the index is locked, so the file is migrated by one run.
+     */
+    private void migrateLegacyResults(int numberOfRuns, Duration maxAge) throws IOException {
+        Path legacyFile = hotfolderPath.resolve(LEGACY_RESULTS_FILENAME);
+        if (!Files.exists(legacyFile)) {
+            return;
+        }
+
+        List<RunInfo> runs = new ArrayList<>(readIndex());
+        // the legacy file lists the newest run first, all of its runs are older than the runs in the store
+        long time = runs.isEmpty() ? System.currentTimeMillis() : runs.get(runs.size() - 1).getTime();
+        LocalDateTime cutoff = maxAge != null ? LocalDateTime.now().minus(maxAge) : null;
+        // one place is taken by the run that is appended after the migration
+        int remainingRuns = numberOfRuns - 1 - runs.size();
+        int migratedRuns = 0;
+
+        try (InputStream in = Files.newInputStream(legacyFile);
+                LegacyRunResultsReader reader = new LegacyRunResultsReader(in)) {
+            while (reader.nextRun()) {
+                GUIImportResult first = reader.nextResult();
+                if (cutoff != null ? LegacyRunResultsReader.isBefore(first, cutoff) : migratedRuns >= remainingRuns) {
+                    // the runs are ordered from the newest to the oldest, all following runs would be dropped as well
+                    break;
+                }
+                time = Math.min(time - 1, getTime(first, time - 1));
+                runs.add(writeSegment(reader.resultsOfRun(first), time));
+                migratedRuns++;
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // keep the runs that were migrated so far
+            log.warn("Cannot migrate all run results of {}: {}", legacyFile, e.toString());
+        }
+        writeIndex(runs);
+
+        Files.move(legacyFile, legacyFile.resolveSibling(LEGACY_RESULTS_FILENAME + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
+        log.info("Migrated {} runs from {} to {}", migratedRuns, legacyFile, resultsFolder);
+    }
+
+    /**
+     * get the time of a legacy run from the timestamp of its first result
+     */
+    private static long getTime(GUIImportResult first, long defaultTime) {
+        if (first == null || StringUtils.isBlank(first.getTimestamp())) {
+            return defaultTime;
+        }
+        try {
+            return LocalDateTime.parse(first.getTimestamp(), GUIImportResult.getFormatter())
+                    .atZone(ZoneId.systemDefault())
+                    .toInstant()
+                    .toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return defaultTime;
+        }
+    }
+
+    /**
+     * receives the results of a run from {@link RunResultsStore#readRun(RunInfo, ResultHandler)}
+     */
+    @FunctionalInterface
+    public interface ResultHandler {
+        void handle(GUIImportResult result) throws IOException;
+    }
+
+    /**
+     * entry of the index
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class RunInfo {
+        // name of the segment file
+        private String id;
+        // time of the run in milliseconds
+        private long time;
+        private int numberOfResults;
+    }
+
+}
@@ -0,0 +1,117 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.goobi.production.plugin.interfaces.IOpacPlugin;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import de.intranda.goobi.plugins.hotfolder.nli.model.exceptions.ImportException;
+import de.unigoettingen.sub.search.opac.ConfigOpacCatalogue;
+import ugh.dl.Fileformat;
+import ugh.dl.Prefs;
+import ugh.fileformats.mets.MetsMods;
+
+public class CatalogueLookupTest {
+
+    private final static Path RULESET_PATH = Path.of("src/test/resources/ruleset.xml").toAbsolutePath();
+    private final static Path SAMPLE_METS_PATH = Path.of("src/test/resources/meta.xml").toAbsolutePath();
+
+    private Prefs prefs;
+    private IOpacPlugin opacPlugin;
+    private ConfigOpacCatalogue catalogue;
+
+    @Before
+    public void setup() throws Exception {
+        prefs = new Prefs();
+        prefs.loadPrefs(RULESET_PATH.toString());
+
+        opacPlugin = Mockito.mock(IOpacPlugin.class);
+        catalogue = Mockito.mock(ConfigOpacCatalogue.class);
+        Mockito.when(catalogue.getTitle()).thenReturn("NLI Alma");
+        Mockito.when(catalogue.getOpacPlugin()).thenReturn(opacPlugin);
+        // every search returns a new record, like a real catalogue
+        Mockito.when(opacPlugin.search(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.any())).thenAnswer(invocation -> {
+            MetsMods ff = new MetsMods(prefs);
+            ff.read(SAMPLE_METS_PATH.toString());
+            return ff;
+        });
+        CatalogueLookup.clearCache();
+    }
+
+    @After
+    public void cleanup() {
+        CatalogueLookup.clearCache();
+    }
+
+    @Test
+    public void testCachedRecordIsCopied() throws Exception {
+        CatalogueLookup lookup = new CatalogueLookup("templateName", catalogue, "12", prefs, 10, Duration.ofMinutes(5), 0);
+
+        Fileformat first = lookup.getRecord("990037838120205171");
+        Fileformat second = lookup.getRecord("990037838120205171");
+
+        Mockito.verify(opacPlugin, Mockito.times(1)).search(Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.any());
+        assertNotSame(first.getDigitalDocument(), second.getDigitalDocument());
+        assertEquals(first.getDigitalDocument().getLogicalDocStruct().getType().getName(),
+                second.getDigitalDocument().getLogicalDocStruct().getType().getName());
+    }
+
+    @Test
+    public void testCacheIsSharedAndBounded() throws Exception {
+        new CatalogueLookup("templateName", catalogue, "12", prefs, 1, Duration.ofMinutes(5), 0).getRecord("1");
+        CatalogueLookup lookup = new CatalogueLookup("templateName", catalogue, "12", prefs, 1, Duration.ofMinutes(5), 0);
+        // cached by the first lookup
+        lookup.getRecord("1");
+        // replaces record 1 in the cache
+        lookup.getRecord("2");
+        lookup.getRecord("1");
+
+        Mockito.verify(opacPlugin, Mockito.times(1)).search(Mockito.anyString(), Mockito.eq("2"), Mockito.any(), Mockito.any());
+        Mockito.verify(opacPlugin, Mockito.times(2)).search(Mockito.anyString(), Mockito.eq("1"), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        CatalogueLookup lookup = new CatalogueLookup("templateName", catalogue, "12", prefs, 0, Duration.ofMinutes(5), 2);
+
+        lookup.prefetch("1");
+        lookup.prefetch("1");
+        lookup.prefetch("2");
+        assertNotNull(lookup.getRecord("1"));
+        assertNotNull(lookup.getRecord("2"));
+
+        Mockito.verify(opacPlugin, Mockito.times(1)).search(Mockito.anyString(), Mockito.eq("1"), Mockito.any(), Mockito.any());
+        Mockito.verify(opacPlugin, Mockito.times(1)).search(Mockito.anyString(), Mockito.eq("2"), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void testEverySearchGetsItsOwnPlugin() throws Exception {
+        CatalogueLookup lookup = new CatalogueLookup("templateName", catalogue, "12", prefs, 0, Duration.ofMinutes(5), 2);
+        // the check of the constructor
+        Mockito.verify(catalogue, Mockito.times(1)).getOpacPlugin();
+
+        lookup.prefetch("1");
+        assertNotNull(lookup.getRecord("1"));
+        assertNotNull(lookup.getRecord("2"));
+
+        // one plugin for the search in the background and one for the search of the record thread
+        Mockito.verify(catalogue, Mockito.times(3)).getOpacPlugin();
+    }
+
+    @Test(expected = ImportException.class)
+    public void testRecordNotFound() throws Exception {
+        Mockito.when(opacPlugin.search(Mockito.anyString(), Mockito.eq("missing"), Mockito.any(), Mockito.any())).thenReturn(null);
+        CatalogueLookup lookup = new CatalogueLookup("templateName", catalogue, "12", prefs, 10, Duration.ofMinutes(5), 1);
+        lookup.prefetch("missing");
+        lookup.getRecord("missing");
+    }
+
+}
@@ -0,0 +1,146 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileTransferTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder(new File("src/test").getAbsoluteFile());
+
+    private Path sourceFolder;
+    private Path targetFolder;
+
+    @Before
+    public void setup() throws IOException {
+        sourceFolder = tempFolder.newFolder("source").toPath();
+        targetFolder = tempFolder.newFolder("target").toPath();
+    }
+
+    @Test
+    public void testLinkOnSameFileSystem() throws IOException {
+        Path source = createFile("image.tif", 1000);
+        Path target = targetFolder.resolve("prefix_0001.tif");
+
+        FileTransfer.Method method = new FileTransfer(1, true).transferFile(source, target, false);
+
+        // some file systems do not support hard links, in which case the file must have been copied
+        assertTrue(method == FileTransfer.Method.LINK || method == FileTransfer.Method.COPY);
+        assertTrue(Files.exists(source));
+        assertArrayEquals(Files.readAllBytes(source), Files.readAllBytes(target));
+    }
+
+    @Test
+    public void testRenameTemporarySource() throws IOException {
+        Path source = createFile("image.tif", 1000);
+        byte[] content = Files.readAllBytes(source);
+        Path target = targetFolder.resolve("image.tif");
+
+        assertEquals(FileTransfer.Method.RENAME, new FileTransfer(1, true).transferFile(source, target, true));
+        assertFalse(Files.exists(source));
+        assertArrayEquals(content, Files.readAllBytes(target));
+    }
+
+    @Test
+    public void testParallelCopyReplacesExistingFiles() throws IOException {
+        Map<Path, Path> files = new LinkedHashMap<>();
+        for (int i = 1; i <= 10; i++) {
+            Path target = targetFolder.resolve(String.format("prefix_%04d.tif", i));
+            Files.write(target, new byte[] { 1, 2, 3 });
+            files.put(createFile("image" + i + ".tif", 100_000 + i), target);
+        }
+
+        new FileTransfer(4, false).transfer(files, false);
+
+        for (Map.Entry<Path, Path> entry : files.entrySet()) {
+            assertTrue(Files.exists(entry.getKey()));
+            assertFalse(Files.isSameFile(entry.getKey(), entry.getValue()));
+            assertArrayEquals(Files.readAllBytes(entry.getKey()), Files.readAllBytes(entry.getValue()));
+            assertEquals(Files.getLastModifiedTime(entry.getKey()), Files.getLastModifiedTime(entry.getValue()));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingSource() throws IOException {
+        Map<Path, Path> files = new LinkedHashMap<>();
+        files.put(createFile("image1.tif", 10), targetFolder.resolve("image1.tif"));
+        files.put(sourceFolder.resolve("missing.tif"), targetFolder.resolve("missing.tif"));
+        new FileTransfer(2, true).transfer(files, false);
+    }
+
+    @Test
+    public void testResumeInterruptedTransfer() throws IOException {
+        Path manifestFolder = tempFolder.newFolder("manifests").toPath();
+        Map<Path, Path> files = new LinkedHashMap<>();
+        Path first = createFile("image1.tif", 1000);
+        files.put(first, targetFolder.resolve("image1.tif"));
+        files.put(sourceFolder.resolve("image2.tif"), targetFolder.resolve("image2.tif"));
+
+        FileTransfer transfer = new FileTransfer(1, false, manifestFolder, false);
+        try {
+            transfer.transfer(files, false);
+        } catch (IOException e) {
+            // image2.tif is still missing
+        }
+
+        // change the completed copy without changing its size, a resumed transfer must not copy it again
+        byte[] changed = new byte[1000];
+        Files.write(targetFolder.resolve("image1.tif"), changed);
+        createFile("image2.tif", 2000);
+        transfer.transfer(files, false);
+
+        assertArrayEquals(changed, Files.readAllBytes(targetFolder.resolve("image1.tif")));
+        assertArrayEquals(Files.readAllBytes(sourceFolder.resolve("image2.tif")), Files.readAllBytes(targetFolder.resolve("image2.tif")));
+        // the manifest is deleted once the folder is complete
+        try (Stream<Path> manifests = Files.list(manifestFolder)) {
+            assertEquals(0, manifests.count());
+        }
+    }
+
+    @Test
+    public void testResumeVerifiesChecksums() throws IOException {
+        Path manifestFolder = tempFolder.newFolder("manifests").toPath();
+        Map<Path, Path> files = new LinkedHashMap<>();
+        Path first = createFile("image1.tif", 1000);
+        files.put(first, targetFolder.resolve("image1.tif"));
+        files.put(sourceFolder.resolve("image2.tif"), targetFolder.resolve("image2.tif"));
+
+        FileTransfer transfer = new FileTransfer(1, false, manifestFolder, true);
+        try {
+            transfer.transfer(files, false);
+        } catch (IOException e) {
+            // image2.tif is still missing
+        }
+
+        // a damaged copy is detected by its checksum and copied again
+        Files.write(targetFolder.resolve("image1.tif"), new byte[1000]);
+        createFile("image2.tif", 2000);
+        transfer.transfer(files, false);
+
+        assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(targetFolder.resolve("image1.tif")));
+    }
+
+    private Path createFile(String name, int size) throws IOException {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i * 31 + name.hashCode());
+        }
+        return Files.write(sourceFolder.resolve(name), content);
+    }
+
+}
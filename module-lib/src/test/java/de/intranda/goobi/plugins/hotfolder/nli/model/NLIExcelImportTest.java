@@ -1,6 +1,7 @@
 package de.intranda.goobi.plugins.hotfolder.nli.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -115,6 +116,27 @@ public class NLIExcelImportTest {
         assertEquals("2", getMetadataValue(ff2, "CurrentNo"));
     }
 
+    @Test
+    public void testIncompleteProcessMark() throws Exception {
+        List<HotfolderFolder> hotfolders = new HotfolderParser(storageProvider).getImportFolders(hotfolderPath, config);
+        HotfolderFolder hff = hotfolders.stream().filter(f -> f.getTemplateName().equals("Audio_and_Video")).findAny().orElse(null);
+        assertNotNull(hff);
+        NLIExcelImport excelImport =
+                new NLIExcelImport(this.config, this.configOpac, this.storageProvider, this.importPath.toString(), prefs, hff.getTemplateName());
+        HotfolderRecord record = excelImport.generateRecordsFromFile(hff).get(0);
+        String processTitle = excelImport.getProcessTitle(record);
+        assertEquals("Reuploads-Audio_997008730630705171", processTitle);
+
+        assertFalse(excelImport.isProcessIncomplete(processTitle));
+        excelImport.markProcessIncomplete(processTitle, record, hff);
+        // the mark is kept in the import folder, so that a new import of the next run finds it
+        NLIExcelImport nextRun =
+                new NLIExcelImport(this.config, this.configOpac, this.storageProvider, this.importPath.toString(), prefs, hff.getTemplateName());
+        assertTrue(nextRun.isProcessIncomplete(processTitle));
+        nextRun.markProcessComplete(processTitle);
+        assertFalse(excelImport.isProcessIncomplete(processTitle));
+    }
+
     public String getMetadataValue(MetsMods ff, String name) {
         String publicationYear =
                 ff.getDigitalDocument()
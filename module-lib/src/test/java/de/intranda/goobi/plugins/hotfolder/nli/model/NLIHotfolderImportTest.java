@@ -1,14 +1,22 @@
 package de.intranda.goobi.plugins.hotfolder.nli.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.XMLConfiguration;
@@ -18,11 +26,14 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
 
 import de.intranda.goobi.plugins.hotfolder.nli.model.config.HotfolderPluginConfig;
 import de.intranda.goobi.plugins.hotfolder.nli.model.data.HotfolderRecord;
 import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.HotfolderFolder;
 import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.HotfolderParser;
+import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.RunCoordinator;
+import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.TemplateQuotas;
 import de.sub.goobi.helper.NIOFileUtils;
 import de.sub.goobi.helper.StorageProviderInterface;
 import de.unigoettingen.sub.search.opac.ConfigOpac;
@@ -102,4 +113,137 @@ public class NLIHotfolderImportTest {
 
     }
 
+    @Test
+    public void testQuotaCountsOnlyImportableRecords() throws Exception {
+        HotfolderFolder hff = new HotfolderFolder(tempFolder.newFolder("limited", "project").toPath(), "limited", storageProvider);
+        List<HotfolderRecord> records = createRecords(5);
+        NLIExcelImport excelImport = Mockito.mock(NLIExcelImport.class);
+        // the first two records were moved by earlier runs
+        Mockito.when(excelImport.getImportableRecordSize(Mockito.any(), Mockito.any())).thenReturn(-1L, -1L, 100L, 100L, 100L);
+
+        NLIHotfolderImport.QuotaIterator iterator = new NLIHotfolderImport.QuotaIterator(records.iterator(), hff, excelImport, createQuotas());
+        assertEquals(records.subList(0, 4), toList(iterator));
+    }
+
+    @Test
+    public void testQuotaIsGivenBackIfRecordIsNotImported() throws Exception {
+        HotfolderFolder hff = new HotfolderFolder(tempFolder.newFolder("limited", "project").toPath(), "limited", storageProvider);
+        List<HotfolderRecord> records = createRecords(4);
+        NLIExcelImport excelImport = Mockito.mock(NLIExcelImport.class);
+        Mockito.when(excelImport.getImportableRecordSize(Mockito.any(), Mockito.any())).thenReturn(0L);
+
+        NLIHotfolderImport.QuotaIterator iterator = new NLIHotfolderImport.QuotaIterator(records.iterator(), hff, excelImport, createQuotas());
+        assertSame(records.get(0), iterator.next());
+        iterator.done(records.get(0), false);
+        assertSame(records.get(1), iterator.next());
+        iterator.done(records.get(1), true);
+        assertSame(records.get(2), iterator.next());
+        iterator.done(records.get(2), true);
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testQuotaOfUnfinishedRecordsIsGivenBack() throws Exception {
+        HotfolderFolder hff = new HotfolderFolder(tempFolder.newFolder("limited", "project").toPath(), "limited", storageProvider);
+        NLIExcelImport excelImport = Mockito.mock(NLIExcelImport.class);
+        Mockito.when(excelImport.getImportableRecordSize(Mockito.any(), Mockito.any())).thenReturn(0L);
+        TemplateQuotas quotas = createQuotas();
+
+        // read ahead, but never started
+        NLIHotfolderImport.QuotaIterator first = new NLIHotfolderImport.QuotaIterator(createRecords(2).iterator(), hff, excelImport, quotas);
+        assertEquals(2, toList(first).size());
+        first.releasePending();
+
+        NLIHotfolderImport.QuotaIterator second = new NLIHotfolderImport.QuotaIterator(createRecords(3).iterator(), hff, excelImport, quotas);
+        assertEquals(2, toList(second).size());
+    }
+
+    @Test
+    public void testClaimIteratorSkipsMissingFoldersAndReleasesClaims() throws Exception {
+        Path claimHotfolder = tempFolder.newFolder("claims").toPath();
+        RunCoordinator coordinator = new RunCoordinator(claimHotfolder, Duration.ofMinutes(5));
+        HotfolderFolder hff = new HotfolderFolder(tempFolder.newFolder("claims", "template", "project").toPath(), "template", storageProvider);
+        Path first = Files.createDirectory(hff.getProjectFolder().resolve("1"));
+        Path claimedByOtherNode = Files.createDirectory(hff.getProjectFolder().resolve("2"));
+        Path last = Files.createDirectory(hff.getProjectFolder().resolve("3"));
+        RunCoordinator.Lease otherClaim = new RunCoordinator(claimHotfolder, Duration.ofMinutes(5)).tryClaim(claimedByOtherNode);
+
+        List<HotfolderRecord> records = createRecords(5);
+        NLIExcelImport excelImport = Mockito.mock(NLIExcelImport.class);
+        // the second record names no folder and the folder of the third one was moved by an earlier run
+        Mockito.when(excelImport.getRecordFolder(Mockito.any(), Mockito.any()))
+                .thenReturn(first, null, hff.getProjectFolder().resolve("moved"), claimedByOtherNode, last);
+
+        NLIHotfolderImport.ClaimIterator iterator = new NLIHotfolderImport.ClaimIterator(records.iterator(), hff, excelImport, coordinator);
+        assertEquals(List.of(records.get(0), records.get(4)), toList(iterator));
+        assertEquals(3, countClaims(claimHotfolder));
+        assertTrue(iterator.isHeld(records.get(0)));
+
+        // every claim is released as soon as its record is done
+        iterator.release(records.get(0));
+        assertFalse(iterator.isHeld(records.get(0)));
+        assertEquals(2, countClaims(claimHotfolder));
+        iterator.releaseClaims();
+        assertEquals(1, countClaims(claimHotfolder));
+        otherClaim.close();
+    }
+
+    @Test
+    public void testClaimIteratorNoticesLostClaim() throws Exception {
+        Path claimHotfolder = tempFolder.newFolder("claims").toPath();
+        RunCoordinator coordinator = new RunCoordinator(claimHotfolder, Duration.ofMinutes(5));
+        HotfolderFolder hff = new HotfolderFolder(tempFolder.newFolder("claims", "template", "project").toPath(), "template", storageProvider);
+        Path folder = Files.createDirectory(hff.getProjectFolder().resolve("1"));
+        HotfolderRecord record = new HotfolderRecord();
+        NLIExcelImport excelImport = Mockito.mock(NLIExcelImport.class);
+        Mockito.when(excelImport.getRecordFolder(Mockito.any(), Mockito.any())).thenReturn(folder);
+
+        NLIHotfolderImport.ClaimIterator iterator = new NLIHotfolderImport.ClaimIterator(List.of(record).iterator(), hff, excelImport, coordinator);
+        assertSame(record, iterator.next());
+        assertTrue(iterator.isHeld(record));
+
+        // the heartbeat stalled and another node took the process folder over
+        try (Stream<Path> files = Files.list(claimHotfolder)) {
+            Path claimFile = files.filter(file -> file.getFileName().toString().startsWith("hotfolder_claim_")).findAny().get();
+            Files.setLastModifiedTime(claimFile, FileTime.fromMillis(System.currentTimeMillis() - Duration.ofMinutes(10).toMillis()));
+        }
+        RunCoordinator.Lease otherClaim = new RunCoordinator(claimHotfolder, Duration.ofMinutes(5)).tryClaim(folder);
+        assertNotNull(otherClaim);
+
+        assertFalse(iterator.isHeld(record));
+        // the claim of the other node is kept
+        iterator.release(record);
+        assertEquals(1, countClaims(claimHotfolder));
+        assertTrue(otherClaim.isHeld());
+        otherClaim.close();
+    }
+
+    private static long countClaims(Path claimHotfolder) throws IOException {
+        try (Stream<Path> files = Files.list(claimHotfolder)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("hotfolder_claim_")).count();
+        }
+    }
+
+    private TemplateQuotas createQuotas() throws IOException, ConfigurationException {
+        Path configFile = tempFolder.newFile("quota.xml").toPath();
+        Files.writeString(configFile, "<config_plugin>"
+                + "<config><template>limited</template><quota><processes>2</processes></quota></config>"
+                + "</config_plugin>", StandardCharsets.UTF_8);
+        return new TemplateQuotas(new HotfolderPluginConfig(new XMLConfiguration(configFile.toFile())));
+    }
+
+    private static List<HotfolderRecord> createRecords(int number) {
+        List<HotfolderRecord> records = new ArrayList<>();
+        for (int i = 0; i < number; i++) {
+            records.add(new HotfolderRecord());
+        }
+        return records;
+    }
+
+    private static <T> List<T> toList(Iterator<T> iterator) {
+        List<T> list = new ArrayList<>();
+        iterator.forEachRemaining(list::add);
+        return list;
+    }
+
 }
@@ -0,0 +1,99 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.intranda.goobi.plugins.hotfolder.nli.model.config.HotfolderPluginConfig;
+import de.intranda.goobi.plugins.hotfolder.nli.model.data.HotfolderRecord;
+import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.HotfolderFolder;
+import de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder.HotfolderParser;
+import de.sub.goobi.helper.NIOFileUtils;
+import de.sub.goobi.helper.StorageProviderInterface;
+import de.unigoettingen.sub.search.opac.ConfigOpac;
+import ugh.dl.Prefs;
+import ugh.exceptions.PreferencesException;
+
+public class StreamingExcelReaderTest {
+
+    private final static Path HOTFOLDER_PATH = Path.of("src/test/resources/hotfolder").toAbsolutePath();
+    private final static Path CONFIG_PATH = Path.of("src/test/resources/plugin_intranda_administration_hotfolder_nli.xml").toAbsolutePath();
+    private final static Path RULESET_PATH = Path.of("src/test/resources/ruleset.xml").toAbsolutePath();
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder(new File("src/test").getAbsoluteFile());
+
+    private Path hotfolderPath;
+    private Path importPath;
+    private HotfolderPluginConfig config;
+    private StorageProviderInterface storageProvider;
+    private Prefs prefs;
+
+    @Before
+    public void setup() throws IOException, ConfigurationException, PreferencesException {
+        this.hotfolderPath = tempFolder.newFolder("hotfolder").toPath();
+        this.importPath = tempFolder.newFolder("import").toPath();
+        config = new HotfolderPluginConfig(new XMLConfiguration(CONFIG_PATH.toFile()));
+        FileUtils.copyDirectory(HOTFOLDER_PATH.toFile(), hotfolderPath.toFile());
+        this.storageProvider = new NIOFileUtils();
+        this.prefs = new Prefs();
+        prefs.loadPrefs(RULESET_PATH.toString());
+
+        assertTrue(Files.exists(hotfolderPath));
+    }
+
+    @Test
+    public void testStreamedRecordsMatchWorkbookRecords() throws IOException {
+        List<HotfolderFolder> hotfolders = new HotfolderParser(storageProvider).getImportFolders(hotfolderPath, config);
+        HotfolderFolder hff = hotfolders.stream().filter(f -> f.getTemplateName().equals("Audio_and_Video")).findAny().orElse(null);
+        assertNotNull(hff);
+
+        NLIExcelImport excelImport =
+                new NLIExcelImport(this.config, ConfigOpac.getInstance(), this.storageProvider, this.importPath.toString(), prefs,
+                        hff.getTemplateName());
+        List<HotfolderRecord> expected = excelImport.generateRecordsFromFile(hff);
+
+        List<HotfolderRecord> streamed = new ArrayList<>();
+        try (StreamingExcelReader reader = excelImport.streamRecordsFromFile(hff)) {
+            reader.forEachRemaining(streamed::add);
+            assertNull(reader.getReadError());
+            assertFalse(reader.hasNext());
+        }
+
+        assertEquals(expected.size(), streamed.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), streamed.get(i).getId());
+            for (String header : List.of("Process title", "Identifier", "UserDefinedA", "UserDefinedB", "dc:Title", "project", "template")) {
+                assertEquals(expected.get(i).getDataObject().getValue(header), streamed.get(i).getDataObject().getValue(header));
+            }
+        }
+        assertEquals("997008730630705171", streamed.get(0).getDataObject().getValue("Process title"));
+        assertEquals("Technical_Services", streamed.get(0).getDataObject().getValue("UserDefinedA"));
+    }
+
+    @Test
+    public void testGetColumnIndex() {
+        assertEquals(0, StreamingExcelReader.getColumnIndex("A1"));
+        assertEquals(7, StreamingExcelReader.getColumnIndex("H2"));
+        assertEquals(26, StreamingExcelReader.getColumnIndex("AA10"));
+        assertEquals(27, StreamingExcelReader.getColumnIndex("AB3"));
+    }
+
+}
@@ -0,0 +1,86 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.commons.configuration.reloading.FileChangedReloadingStrategy;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class HotfolderPluginConfigTest {
+
+    private final static Path CONFIG_PATH = Path.of("src/test/resources/plugin_intranda_administration_hotfolder_nli.xml").toAbsolutePath();
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder(new File("src/test").getAbsoluteFile());
+
+    private Path configFile;
+    private XMLConfiguration xmlConfig;
+    private HotfolderPluginConfig config;
+
+    @Before
+    public void setup() throws IOException, ConfigurationException {
+        configFile = tempFolder.getRoot().toPath().resolve(CONFIG_PATH.getFileName());
+        Files.copy(CONFIG_PATH, configFile);
+        xmlConfig = new XMLConfiguration(configFile.toFile());
+        config = new HotfolderPluginConfig(xmlConfig);
+    }
+
+    @Test
+    public void testExcelConfigIsCached() {
+        NLIExcelConfig excelConfig = config.getExcelConfig("Audio_and_Video");
+        assertSame(excelConfig, config.getExcelConfig("Audio_and_Video"));
+        assertFalse(excelConfig.isReplaceExistingProcesses());
+        assertEquals(0, excelConfig.getScheduleStart());
+    }
+
+    @Test
+    public void testRunOrderIgnoresCase() {
+        assertEquals("none", config.getRunOrder());
+        xmlConfig.setProperty("runOrder", "roundrobin");
+        assertEquals("roundRobin", config.getRunOrder());
+        xmlConfig.setProperty("runOrder", " OLDESTFIRST ");
+        assertEquals("oldestFirst", config.getRunOrder());
+        xmlConfig.setProperty("runOrder", "unknown");
+        assertEquals("unknown", config.getRunOrder());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testExcelConfigIsUnmodifiable() {
+        config.getExcelConfig("Audio_and_Video").getMetadataList().clear();
+    }
+
+    @Test
+    public void testCacheIsClearedOnReload() throws IOException {
+        FileChangedReloadingStrategy strategy = new FileChangedReloadingStrategy();
+        strategy.setRefreshDelay(0);
+        xmlConfig.setReloadingStrategy(strategy);
+
+        NLIExcelConfig excelConfig = config.getExcelConfig("Audio_and_Video");
+
+        String content = Files.readString(configFile, StandardCharsets.UTF_8);
+        Files.writeString(configFile,
+                content.replace("<replaceExistingProcesses>false</replaceExistingProcesses>", "<replaceExistingProcesses>true</replaceExistingProcesses>"),
+                StandardCharsets.UTF_8);
+        assertTrue(configFile.toFile().setLastModified(System.currentTimeMillis() + 10000));
+
+        NLIExcelConfig reloaded = config.getExcelConfig("Audio_and_Video");
+        assertNotSame(excelConfig, reloaded);
+        assertTrue(reloaded.isReplaceExistingProcesses());
+        assertSame(reloaded, config.getExcelConfig("Audio_and_Video"));
+    }
+
+}
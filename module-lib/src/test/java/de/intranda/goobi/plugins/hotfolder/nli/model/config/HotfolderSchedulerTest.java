@@ -0,0 +1,40 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.Duration;
+import java.time.LocalTime;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class HotfolderSchedulerTest {
+
+    private static HotfolderScheduler createScheduler(int start, int end) {
+        NLIExcelConfig excelConfig = Mockito.mock(NLIExcelConfig.class);
+        Mockito.when(excelConfig.getScheduleStart()).thenReturn(start);
+        Mockito.when(excelConfig.getScheduleEnd()).thenReturn(end);
+        HotfolderPluginConfig config = Mockito.mock(HotfolderPluginConfig.class);
+        Mockito.when(config.getExcelConfig("template")).thenReturn(excelConfig);
+        return new HotfolderScheduler(config);
+    }
+
+    @Test
+    public void testRemainingTime() {
+        HotfolderScheduler scheduler = createScheduler(19 * 60, 7 * 60);
+        assertEquals(Duration.ofHours(10), scheduler.getRemainingTime("template", LocalTime.of(21, 0)));
+        assertEquals(Duration.ofHours(1), scheduler.getRemainingTime("template", LocalTime.of(6, 0)));
+        assertEquals(Duration.ZERO, scheduler.getRemainingTime("template", LocalTime.of(12, 0)));
+        assertNull(createScheduler(19 * 60, 0).getRemainingTime("template", LocalTime.of(21, 0)));
+    }
+
+    @Test
+    public void testTimeframeEndingAtMidnight() {
+        HotfolderScheduler scheduler = createScheduler(19 * 60, NLIExcelConfig.parseTimeOfDay("24"));
+        assertEquals(Duration.ofMinutes(150), scheduler.getRemainingTime("template", LocalTime.of(21, 30)));
+        assertEquals(Duration.ZERO, scheduler.getRemainingTime("template", LocalTime.of(12, 0)));
+        assertEquals(Duration.ofHours(24), createScheduler(0, 24 * 60).getRemainingTime("template", LocalTime.MIDNIGHT));
+    }
+
+}
@@ -1,5 +1,7 @@
 package de.intranda.goobi.plugins.hotfolder.nli.model.config;
 
+import static org.junit.Assert.assertEquals;
+
 import java.nio.file.Path;
 import java.util.Map;
 
@@ -30,4 +32,16 @@ public class NLIExcelConfigTest {
         excelConfig.getImportFolder().getValue(data);
     }
 
+    @Test
+    public void testParseTimeOfDay() {
+        assertEquals(19 * 60, NLIExcelConfig.parseTimeOfDay("19"));
+        assertEquals(18 * 60 + 30, NLIExcelConfig.parseTimeOfDay("18:30"));
+        assertEquals(24 * 60, NLIExcelConfig.parseTimeOfDay("24"));
+        assertEquals(24 * 60, NLIExcelConfig.parseTimeOfDay("24:00"));
+        assertEquals(0, NLIExcelConfig.parseTimeOfDay("25"));
+        assertEquals(0, NLIExcelConfig.parseTimeOfDay("-1"));
+        assertEquals(0, NLIExcelConfig.parseTimeOfDay("24:30"));
+        assertEquals(0, NLIExcelConfig.parseTimeOfDay(""));
+    }
+
 }
@@ -0,0 +1,107 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.data;
+
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the cost of evaluating the rules of one record with the compiled {@link MetadataRule} against the former implementation that parsed
+ * the rule and compiled the replacement regex on every call. The rules resemble a typical template configuration: process identifier, title, image
+ * prefix, import folder and a few metadata mappings. Run the main method or use the JMH runner of your IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetadataRuleBenchmark {
+
+    private static final String FOLDER_REGEX = "(\\d+)_([\\d_]+)-([\\d_]+)(?:-(\\d+))?";
+    private static final String TITLE_REGEX = "[\\W]";
+
+    private List<MetadataRule> rules;
+    private IRecordDataObject data;
+
+    @Setup
+    public void setup() {
+        data = new RecordDataObject(Map.of("project", "Reuploads-Audio", "template", "Audio_and_Video", "folder",
+                "990037838120205171_26_87-29_03_2024-2", "Process title", "997008730630705171", "Identifier", "997008730630705171", "Shelfmark",
+                "Ms. Heb 28/4 a", "dcterms:IE_Title", "Gdl-1-12"));
+        rules = List.of(new MetadataRule("folder", FOLDER_REGEX, "$1"),
+                new MetadataRule("project+'_'+Process title", TITLE_REGEX, "_"),
+                new MetadataRule("dcterms:IE_Title", "", ""),
+                new MetadataRule("Process title", "", ""),
+                new MetadataRule("folder", FOLDER_REGEX, "$2"),
+                new MetadataRule("folder", FOLDER_REGEX, "$3"),
+                new MetadataRule("'ID_'+Shelfmark", "", ""),
+                new MetadataRule("Identifier", "", ""));
+    }
+
+    @Benchmark
+    public void compiledRules(Blackhole blackhole) {
+        for (MetadataRule rule : rules) {
+            blackhole.consume(rule.getValue(data));
+        }
+    }
+
+    @Benchmark
+    public void parsedOnEveryCall(Blackhole blackhole) {
+        for (MetadataRule rule : rules) {
+            blackhole.consume(legacyValue(rule.getRule(), rule.getReplacementRegex(), rule.getReplacementSubstitution(), data));
+        }
+    }
+
+    /**
+     * the evaluation of MetadataRule before rules were compiled, kept for comparison
+     */
+    private static String legacyValue(String ruleString, String replacementRegex, String replacementSubstitution, IRecordDataObject data) {
+        String timestamp = Long.toString(System.currentTimeMillis());
+        StringBuilder titleValue = new StringBuilder();
+        StringTokenizer tokenizer = new StringTokenizer(ruleString, "+");
+        while (tokenizer.hasMoreTokens()) {
+            String myString = tokenizer.nextToken();
+            if (myString.startsWith("'") && myString.endsWith("'")) {
+                titleValue.append(myString.substring(1, myString.length() - 1));
+            } else if ("Signatur".equalsIgnoreCase(myString) || "Shelfmark".equalsIgnoreCase(myString)) {
+                if (StringUtils.isNotBlank(data.getValue(myString))) {
+                    titleValue.append(data.getValue(myString).replace(" ", "-").replace("/", "-").replaceAll("[^\\w-]", ""));
+                }
+            } else if ("timestamp".equalsIgnoreCase(myString)) {
+                titleValue.append(timestamp);
+            } else if (myString.startsWith("(") || myString.startsWith("{")) {
+                titleValue.append(myString);
+            } else {
+                String s = data.getValue(myString);
+                titleValue.append(s != null ? s : "");
+            }
+        }
+        String newTitle = titleValue.toString();
+        if (newTitle.endsWith("_")) {
+            newTitle = newTitle.substring(0, newTitle.length() - 1);
+        }
+        return newTitle.replaceAll(replacementRegex, replacementSubstitution);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MetadataRuleBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
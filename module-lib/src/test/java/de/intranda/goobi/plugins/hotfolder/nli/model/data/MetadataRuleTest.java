@@ -0,0 +1,57 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class MetadataRuleTest {
+
+    private final IRecordDataObject data = new RecordDataObject(
+            Map.of("project", "Reuploads-Audio", "Process title", "997008730630705171", "Shelfmark", "Ms. Heb 28/4 a", "folder",
+                    "990037838120205171_26_87-29_03_2024-2"));
+
+    @Test
+    public void testFieldsAndLiterals() {
+        MetadataRule rule = new MetadataRule("project+'_'+Process title", "", "");
+        assertEquals("Reuploads-Audio_997008730630705171", rule.getValue(data));
+        // evaluating a rule twice gives the same result
+        assertEquals("Reuploads-Audio_997008730630705171", rule.getValue(data));
+    }
+
+    @Test
+    public void testTrailingUnderscoreIsRemoved() {
+        MetadataRule rule = new MetadataRule("Process title+'_'+missing", "", "");
+        assertEquals("997008730630705171", rule.getValue(data));
+    }
+
+    @Test
+    public void testShelfmark() {
+        MetadataRule rule = new MetadataRule("'ID_'+Shelfmark", "", "");
+        assertEquals("ID_Ms-Heb-28-4-a", rule.getValue(data));
+    }
+
+    @Test
+    public void testReplacement() {
+        String regex = "(\\d+)_([\\d_]+)-([\\d_]+)(?:-(\\d+))?";
+        assertEquals("990037838120205171", new MetadataRule("folder", regex, "$1").getValue(data));
+        assertEquals("26_87", new MetadataRule("folder", regex, "$2").getValue(data));
+        assertEquals("2", new MetadataRule("folder", regex, "$4").getValue(data));
+    }
+
+    @Test
+    public void testTimestampAndVariables() {
+        MetadataRule rule = new MetadataRule("timestamp+'-'+{meta.CatalogIDDigital}", "", "");
+        String value = rule.getValue(data);
+        assertTrue(value, value.matches("\\d+-\\{meta\\.CatalogIDDigital\\}"));
+    }
+
+    @Test
+    public void testEmptyRule() {
+        assertEquals("", new MetadataRule("", "", "").getValue(data));
+        assertTrue(new MetadataRule("", "", "").isBlank());
+    }
+
+}
@@ -0,0 +1,76 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.sub.goobi.helper.NIOFileUtils;
+
+public class HotfolderFolderTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder(new File("src/test").getAbsoluteFile());
+
+    private Path projectFolder;
+    private Path barcodeFolder;
+
+    @Before
+    public void setup() throws IOException {
+        projectFolder = tempFolder.newFolder("template", "project").toPath();
+        barcodeFolder = Files.createDirectory(projectFolder.resolve("990037838120205171_26_87-29_03_2024"));
+        Files.createFile(barcodeFolder.resolve("20240329_01.pdf"));
+        Files.createFile(barcodeFolder.resolve("20240329_02.pdf"));
+        Files.createFile(barcodeFolder.resolve("Karenp.owner"));
+        Files.createFile(barcodeFolder.resolve("Thumbs.db"));
+        Files.createDirectory(barcodeFolder.resolve("subfolder"));
+        Files.createDirectory(projectFolder.resolve("990037838120205172"));
+    }
+
+    @Test
+    public void testSnapshot() {
+        HotfolderFolder hff = new HotfolderFolder(projectFolder, "template", new NIOFileUtils());
+
+        assertFalse(Files.exists(barcodeFolder.resolve("Thumbs.db")));
+        List<BarcodeFolder> folders = hff.getBarcodeFolders();
+        assertEquals(2, folders.size());
+
+        BarcodeFolder folder = folders.stream().filter(f -> f.getPath().equals(barcodeFolder)).findAny().orElseThrow();
+        assertEquals(4, folder.getEntries().size());
+        assertEquals(3, folder.getNumberOfFiles());
+        assertEquals(1, folder.getNumberOfFolders());
+        assertEquals("Karenp", folder.getOwnerName());
+        assertTrue(folder.getLastModified() > 0);
+
+        assertEquals("Karenp", hff.getOwnerName("Project_990037838120205171_26_87-29_03_2024"));
+        assertEquals("", hff.getOwnerName("990037838120205172"));
+        assertEquals(1, hff.getFolderOwnerMap().size());
+        assertEquals(2, hff.getCurrentProcessFolders(0).size());
+    }
+
+    @Test
+    public void testDeleteOwnerFile() {
+        HotfolderFolder hff = new HotfolderFolder(projectFolder, "template", new NIOFileUtils());
+
+        assertTrue(hff.deleteOwnerFile("Project_990037838120205171_26_87-29_03_2024"));
+        assertFalse(Files.exists(barcodeFolder.resolve("Karenp.owner")));
+
+        BarcodeFolder folder = hff.getBarcodeFolders().stream().filter(f -> f.getPath().equals(barcodeFolder)).findAny().orElseThrow();
+        assertNull(folder.getOwnerFile());
+        assertEquals(3, folder.getEntries().size());
+        assertEquals("", hff.getOwnerName("Project_990037838120205171_26_87-29_03_2024"));
+        assertFalse(hff.deleteOwnerFile("Project_990037838120205171_26_87-29_03_2024"));
+    }
+
+}
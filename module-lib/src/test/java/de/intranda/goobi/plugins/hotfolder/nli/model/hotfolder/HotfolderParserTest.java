@@ -0,0 +1,72 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.intranda.goobi.plugins.hotfolder.nli.model.config.HotfolderPluginConfig;
+import de.sub.goobi.helper.NIOFileUtils;
+
+public class HotfolderParserTest {
+
+    private final static Path CONFIG_PATH = Path.of("src/test/resources/plugin_intranda_administration_hotfolder_nli.xml").toAbsolutePath();
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder(new File("src/test").getAbsoluteFile());
+
+    private Path hotfolderPath;
+    private Path emptyProject;
+    private HotfolderPluginConfig config;
+
+    @Before
+    public void setup() throws IOException, ConfigurationException {
+        hotfolderPath = tempFolder.newFolder("hotfolder").toPath();
+        Path template = Files.createDirectory(hotfolderPath.resolve("templateName"));
+        emptyProject = Files.createDirectory(template.resolve("emptyProject"));
+        Path pendingProject = Files.createDirectory(template.resolve("pendingProject"));
+        Files.createDirectory(pendingProject.resolve("990037838120205171"));
+
+        // the scan index does not trust modification times close to the time of the scan
+        long anHourAgo = System.currentTimeMillis() - 3600000;
+        for (Path path : List.of(template, emptyProject, pendingProject)) {
+            assertTrue(path.toFile().setLastModified(anHourAgo));
+        }
+
+        XMLConfiguration xmlConfig = new XMLConfiguration(CONFIG_PATH.toFile());
+        config = new HotfolderPluginConfig(xmlConfig);
+        xmlConfig.setProperty("useScanIndex", true);
+    }
+
+    @Test
+    public void testScanIndexSkipsUnchangedFolders() throws IOException {
+        HotfolderParser parser = new HotfolderParser(new NIOFileUtils());
+
+        assertEquals(List.of("emptyProject", "pendingProject"), getProjectNames(parser.getImportFolders(hotfolderPath, config)));
+        assertTrue(Files.exists(hotfolderPath.resolve(ScanIndex.SCAN_INDEX_FILENAME)));
+
+        // the empty project is unchanged, the pending project still has to be imported
+        assertEquals(List.of("pendingProject"), getProjectNames(parser.getImportFolders(hotfolderPath, config)));
+
+        // a new process folder changes the modification time of the project folder
+        Files.createDirectory(emptyProject.resolve("990037838120205172"));
+        assertEquals(List.of("emptyProject", "pendingProject"), getProjectNames(parser.getImportFolders(hotfolderPath, config)));
+    }
+
+    private static List<String> getProjectNames(List<HotfolderFolder> folders) {
+        return folders.stream().map(f -> f.getProjectFolder().getFileName().toString()).sorted().collect(Collectors.toList());
+    }
+
+}
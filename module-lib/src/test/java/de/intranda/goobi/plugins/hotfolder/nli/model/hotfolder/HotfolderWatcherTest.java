@@ -0,0 +1,74 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class HotfolderWatcherTest {
+
+    private static final long QUIET_PERIOD = Duration.ofMinutes(30).toMillis();
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder(new File("src/test").getAbsoluteFile());
+
+    private Path hotfolderPath;
+    private HotfolderWatcher watcher;
+
+    @Before
+    public void setup() throws IOException {
+        hotfolderPath = tempFolder.newFolder("hotfolder").toPath();
+        watcher = new HotfolderWatcher(hotfolderPath, Duration.ofMillis(QUIET_PERIOD), Duration.ofHours(1), folders -> true);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        watcher.close();
+    }
+
+    @Test
+    public void testProjectIsReadyWhenAllBarcodeFoldersAreQuiet() {
+        Path project = hotfolderPath.resolve("template/project");
+        watcher.recordActivity(project.resolve("barcode1/image.tif"), 0);
+        watcher.recordActivity(project.resolve("barcode2"), 1000);
+        // activity in the hotfolder itself or in template folders is ignored
+        watcher.recordActivity(hotfolderPath.resolve("hotfolder_running.lock"), 0);
+        watcher.recordActivity(hotfolderPath.resolve("template"), 0);
+
+        assertTrue(watcher.collectReadyFolders(QUIET_PERIOD).isEmpty());
+        assertEquals(Set.of(project), watcher.collectReadyFolders(QUIET_PERIOD + 1000));
+        // the project was handed out and is not reported again
+        assertTrue(watcher.collectReadyFolders(QUIET_PERIOD + 2000).isEmpty());
+    }
+
+    @Test
+    public void testRequeue() {
+        Path project = hotfolderPath.resolve("template/project");
+        watcher.recordActivity(project.resolve("barcode1"), 0);
+        assertEquals(Set.of(project), watcher.collectReadyFolders(QUIET_PERIOD));
+
+        watcher.requeue(Set.of(project), QUIET_PERIOD);
+        assertTrue(watcher.collectReadyFolders(QUIET_PERIOD + 1).isEmpty());
+        assertEquals(Set.of(project), watcher.collectReadyFolders(QUIET_PERIOD + HotfolderWatcher.RETRY_DELAY.toMillis()));
+    }
+
+    @Test
+    public void testFullScan() {
+        // a watcher that was not started has no picture of the hotfolder
+        assertTrue(watcher.isFullScanDue());
+        watcher.markFullScan(System.currentTimeMillis());
+        assertFalse(watcher.isFullScanDue());
+    }
+
+}
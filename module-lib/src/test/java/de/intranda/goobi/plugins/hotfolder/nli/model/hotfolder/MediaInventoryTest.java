@@ -0,0 +1,87 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MediaInventoryTest {
+
+    private static final byte[] JPEG = { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10 };
+    private static final byte[] TIFF = { 'I', 'I', 0x2A, 0, 8, 0, 0, 0 };
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder(new File("src/test").getAbsoluteFile());
+
+    private Path folder;
+
+    @Before
+    public void setup() throws IOException {
+        folder = tempFolder.newFolder("images").toPath();
+    }
+
+    @Test
+    public void testDetectMediaType() {
+        assertEquals(MediaInventory.MIMETYPE_JPEG, MediaInventory.detectMediaType(ByteBuffer.wrap(JPEG)));
+        assertEquals(MediaInventory.MIMETYPE_TIFF, MediaInventory.detectMediaType(ByteBuffer.wrap(TIFF)));
+        assertEquals(MediaInventory.MIMETYPE_TIFF, MediaInventory.detectMediaType(ByteBuffer.wrap(new byte[] { 'M', 'M', 0, 0x2A })));
+        assertEquals("application/pdf", MediaInventory.detectMediaType(ByteBuffer.wrap("%PDF-1.7".getBytes(StandardCharsets.US_ASCII))));
+        assertEquals(MediaInventory.MIMETYPE_UNKNOWN, MediaInventory.detectMediaType(ByteBuffer.wrap(new byte[] { 'I', 'I' })));
+    }
+
+    @Test
+    public void testDetectEpub() {
+        ByteBuffer header = ByteBuffer.allocate(64);
+        header.put(new byte[] { 'P', 'K', 3, 4 });
+        header.position(30);
+        header.put("mimetypeapplication/epub+zip".getBytes(StandardCharsets.US_ASCII));
+        header.flip();
+        assertEquals("application/epub+zip", MediaInventory.detectMediaType(header));
+        assertEquals("application/zip", MediaInventory.detectMediaType(ByteBuffer.wrap(new byte[] { 'P', 'K', 3, 4, 0, 0 })));
+    }
+
+    @Test
+    public void testCountByContent() throws IOException {
+        // the names do not matter, only the content
+        Files.write(folder.resolve("b.tif"), TIFF);
+        Files.write(folder.resolve("A.jpg"), JPEG);
+        Files.write(folder.resolve("c.jpg"), TIFF);
+        Files.write(folder.resolve("empty.jpg"), new byte[0]);
+
+        MediaInventory inventory = MediaInventory.scan(folder, true);
+
+        assertEquals(1, inventory.count(MediaInventory.MIMETYPE_JPEG));
+        assertEquals(2, inventory.count(MediaInventory.MIMETYPE_TIFF));
+        assertEquals("A.jpg", inventory.getEntries().get(0).getName());
+        assertEquals("b.tif", inventory.getEntries().get(1).getName());
+        assertTrue(inventory.hasOnlyRegularFiles());
+    }
+
+    @Test
+    public void testScanWithoutClassification() throws IOException {
+        Files.write(folder.resolve("image.jpg"), JPEG);
+        Files.createDirectory(folder.resolve("sub"));
+
+        MediaInventory inventory = MediaInventory.scan(folder, false);
+
+        assertEquals(2, inventory.getEntries().size());
+        assertNull(inventory.getEntries().get(0).getMediaType());
+        assertEquals(0, inventory.count(MediaInventory.MIMETYPE_JPEG));
+        assertTrue(inventory.getEntries().get(1).isDirectory());
+        assertTrue(inventory.hasRegularFiles());
+        assertFalse(inventory.hasOnlyRegularFiles());
+    }
+
+}
@@ -0,0 +1,140 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RunCoordinatorTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Path hotfolderPath;
+    private RunCoordinator coordinator;
+
+    @Before
+    public void setup() {
+        hotfolderPath = tempFolder.getRoot().toPath();
+        coordinator = new RunCoordinator(hotfolderPath, Duration.ofMinutes(5));
+    }
+
+    @Test
+    public void testRunLeaseIsExclusive() throws IOException {
+        RunCoordinator.Lease lease = coordinator.tryAcquireRun(true);
+        assertNotNull(lease);
+        assertTrue(Files.exists(hotfolderPath.resolve(RunCoordinator.RUNNING_LOCK)));
+        assertNull(new RunCoordinator(hotfolderPath, Duration.ofMinutes(5)).tryAcquireRun(true));
+        assertEquals(1, coordinator.getRunningImports().size());
+
+        lease.close();
+        assertFalse(Files.exists(hotfolderPath.resolve(RunCoordinator.RUNNING_LOCK)));
+        assertTrue(coordinator.getRunningImports().isEmpty());
+    }
+
+    @Test
+    public void testRunLeasesOfBothModesExcludeEachOther() throws IOException {
+        RunCoordinator.Lease exclusive = coordinator.tryAcquireRun(true);
+        assertNull(new RunCoordinator(hotfolderPath, Duration.ofMinutes(5)).tryAcquireRun(false));
+        exclusive.close();
+
+        RunCoordinator.Lease shared = coordinator.tryAcquireRun(false);
+        assertNotNull(shared);
+        assertNull(new RunCoordinator(hotfolderPath, Duration.ofMinutes(5)).tryAcquireRun(true));
+        // the failed attempt must not leave its lease behind
+        assertFalse(Files.exists(hotfolderPath.resolve(RunCoordinator.RUNNING_LOCK)));
+        shared.close();
+        assertNotNull(coordinator.tryAcquireRun(true));
+    }
+
+    @Test
+    public void testExpiredLeaseIsTakenOver() throws IOException {
+        RunCoordinator.Lease crashed = coordinator.tryAcquireRun(true);
+        Path lockFile = hotfolderPath.resolve(RunCoordinator.RUNNING_LOCK);
+        Files.setLastModifiedTime(lockFile, FileTime.fromMillis(System.currentTimeMillis() - Duration.ofMinutes(10).toMillis()));
+        assertTrue(coordinator.getRunningImports().isEmpty());
+
+        RunCoordinator.Lease lease = new RunCoordinator(hotfolderPath, Duration.ofMinutes(5)).tryAcquireRun(true);
+        assertNotNull(lease);
+        // the crashed run must not release the lease of the new run
+        crashed.close();
+        assertTrue(Files.exists(lockFile));
+        lease.close();
+        assertFalse(Files.exists(lockFile));
+    }
+
+    @Test
+    public void testClaims() throws IOException {
+        Path folder = hotfolderPath.resolve("template/project/barcode");
+        RunCoordinator.Lease claim = coordinator.tryClaim(folder);
+        assertNotNull(claim);
+        assertEquals("template/project/barcode", claim.getInfo().getResource());
+        assertNull(new RunCoordinator(hotfolderPath, Duration.ofMinutes(5)).tryClaim(folder));
+        assertNotNull(coordinator.tryClaim(hotfolderPath.resolve("template/project/other")));
+        // claims are no runs
+        assertTrue(coordinator.getRunningImports().isEmpty());
+
+        claim.close();
+        assertNotNull(coordinator.tryClaim(folder));
+    }
+
+    @Test
+    public void testLostLeaseIsNoticed() throws IOException {
+        Path folder = hotfolderPath.resolve("template/project/barcode");
+        RunCoordinator.Lease claim = coordinator.tryClaim(folder);
+        assertTrue(claim.isHeld());
+        assertFalse(claim.isLost());
+
+        // e.g. a long garbage collection, the claim may be taken over at any time
+        Path claimFile;
+        try (Stream<Path> files = Files.list(hotfolderPath)) {
+            claimFile = files.filter(file -> file.getFileName().toString().startsWith("hotfolder_claim_")).findAny().get();
+        }
+        Files.setLastModifiedTime(claimFile, FileTime.fromMillis(System.currentTimeMillis() - Duration.ofMinutes(10).toMillis()));
+        RunCoordinator.Lease takenOver = new RunCoordinator(hotfolderPath, Duration.ofMinutes(5)).tryClaim(folder);
+        assertNotNull(takenOver);
+
+        assertFalse(claim.isHeld());
+        assertTrue(claim.isLost());
+        assertTrue(takenOver.isHeld());
+        // the lost claim must not release the claim of the other node
+        claim.close();
+        assertTrue(Files.exists(claimFile));
+        takenOver.close();
+    }
+
+    @Test
+    public void testOverdueLeaseIsGivenUp() throws IOException {
+        RunCoordinator.Lease lease = coordinator.tryAcquireRun(true);
+        Path lockFile = hotfolderPath.resolve(RunCoordinator.RUNNING_LOCK);
+        Files.setLastModifiedTime(lockFile, FileTime.fromMillis(System.currentTimeMillis() - Duration.ofMinutes(4).toMillis()));
+        // not expired yet, but too close to the timeout to rely on it
+        assertFalse(lease.isHeld());
+        assertFalse(lease.isHeld());
+        lease.close();
+    }
+
+    @Test
+    public void testPause() throws IOException {
+        assertFalse(coordinator.isPaused());
+        coordinator.pause();
+        coordinator.pause();
+        assertTrue(coordinator.isPaused());
+        coordinator.resume();
+        assertFalse(coordinator.isPaused());
+    }
+
+}
@@ -0,0 +1,99 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.intranda.goobi.plugins.hotfolder.nli.model.config.HotfolderPluginConfig;
+import de.intranda.goobi.plugins.hotfolder.nli.model.log.ImportDurationStatistics;
+import de.sub.goobi.helper.NIOFileUtils;
+
+public class RunPlannerTest {
+
+    private final static Path CONFIG_PATH = Path.of("src/test/resources/plugin_intranda_administration_hotfolder_nli.xml").toAbsolutePath();
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder(new File("src/test").getAbsoluteFile());
+
+    private Path hotfolderPath;
+    private XMLConfiguration xmlConfig;
+    private HotfolderPluginConfig config;
+
+    @Before
+    public void setup() throws IOException, ConfigurationException {
+        hotfolderPath = tempFolder.newFolder("hotfolder").toPath();
+        Path template = Files.createDirectory(hotfolderPath.resolve("templateName"));
+        // the older project has the larger process folder
+        createProcessFolder(template.resolve("olderProject"), "990037838120205171", 2 * 1024 * 1024, 7200000);
+        createProcessFolder(template.resolve("newerProject"), "990037838120205172", 1024 * 1024, 3600000);
+
+        xmlConfig = new XMLConfiguration(CONFIG_PATH.toFile());
+        config = new HotfolderPluginConfig(xmlConfig);
+    }
+
+    private static void createProcessFolder(Path projectFolder, String barcode, int size, long age) throws IOException {
+        Path processFolder = Files.createDirectories(projectFolder.resolve(barcode));
+        Files.write(processFolder.resolve("00000001.tif"), new byte[size]);
+        assertTrue(processFolder.toFile().setLastModified(System.currentTimeMillis() - age));
+    }
+
+    @Test
+    public void testOldestFirstDoesNotMeasureSizes() throws IOException {
+        xmlConfig.setProperty("runOrder", "oldestFirst");
+        RunPlanner planner = new RunPlanner(config, ImportDurationStatistics.load(hotfolderPath));
+        List<HotfolderFolder> folders = new HotfolderParser(new NIOFileUtils()).getImportFolders(hotfolderPath, config);
+
+        assertEquals(List.of("olderProject", "newerProject"), getProjectNames(planner.plan(folders)));
+        for (HotfolderFolder folder : folders) {
+            RunPlanner.Estimate estimate = planner.estimate(folder, false);
+            assertEquals(1, estimate.getRecords());
+            assertEquals(-1, estimate.getMegabytes(), 0);
+            assertEquals(-1, estimate.getMillis());
+        }
+    }
+
+    @Test
+    public void testSmallestFirstMeasuresSizes() throws IOException {
+        xmlConfig.setProperty("runOrder", "smallestFirst");
+        RunPlanner planner = new RunPlanner(config, ImportDurationStatistics.load(hotfolderPath));
+        List<HotfolderFolder> folders = new HotfolderParser(new NIOFileUtils()).getImportFolders(hotfolderPath, config);
+
+        assertEquals(List.of("newerProject", "olderProject"), getProjectNames(planner.plan(folders)));
+        HotfolderFolder older = folders.stream().filter(f -> f.getProjectFolder().endsWith("olderProject")).findAny().orElseThrow();
+        assertEquals(2, planner.estimate(older, true).getMegabytes(), 0.001);
+    }
+
+    @Test
+    public void testDurationsAreOnlyRecordedWithSizes() throws IOException {
+        xmlConfig.setProperty("runOrder", "oldestFirst");
+        ImportDurationStatistics statistics = ImportDurationStatistics.load(hotfolderPath);
+        RunPlanner planner = new RunPlanner(config, statistics);
+        List<HotfolderFolder> folders = planner.plan(new HotfolderParser(new NIOFileUtils()).getImportFolders(hotfolderPath, config));
+        planner.recordImport(folders.get(0), 1, 1000);
+        assertEquals(-1, statistics.predict("templateName", 1, 0));
+
+        xmlConfig.setProperty("predictRunTime", true);
+        planner = new RunPlanner(config, statistics);
+        folders = planner.plan(folders);
+        planner.recordImport(folders.get(0), 1, 1000);
+        assertTrue(statistics.predict("templateName", 1, 0) >= 0);
+    }
+
+    private static List<String> getProjectNames(List<HotfolderFolder> folders) {
+        return folders.stream().map(f -> f.getProjectFolder().getFileName().toString()).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,55 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ShardAssignmentTest {
+
+    private static final int PROJECTS = 3000;
+
+    @Test
+    public void testWithoutNodes() {
+        assertNull(new ShardAssignment(List.of()).getOwner("template", "project"));
+    }
+
+    @Test
+    public void testSingleNodeOwnsAll() {
+        ShardAssignment shards = new ShardAssignment(List.of("node1"));
+        for (int i = 0; i < 100; i++) {
+            assertEquals("node1", shards.getOwner("template", "project" + i));
+        }
+    }
+
+    @Test
+    public void testProjectsAreSpread() {
+        ShardAssignment shards = new ShardAssignment(List.of("node1", "node2", "node3"));
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < PROJECTS; i++) {
+            counts.merge(shards.getOwner("template", "project" + i), 1, Integer::sum);
+        }
+        assertEquals(3, counts.size());
+        for (int count : counts.values()) {
+            assertTrue("uneven share " + counts, count > PROJECTS / 5);
+        }
+    }
+
+    @Test
+    public void testOnlyProjectsOfLeavingNodeMove() {
+        ShardAssignment before = new ShardAssignment(List.of("node1", "node2", "node3"));
+        ShardAssignment after = new ShardAssignment(List.of("node1", "node3"));
+        for (int i = 0; i < PROJECTS; i++) {
+            String owner = before.getOwner("template", "project" + i);
+            if (!"node2".equals(owner)) {
+                assertEquals(owner, after.getOwner("template", "project" + i));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.hotfolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.intranda.goobi.plugins.hotfolder.nli.model.config.HotfolderPluginConfig;
+import de.sub.goobi.helper.NIOFileUtils;
+
+public class TemplateQuotasTest {
+
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testInterleave() throws IOException {
+        List<HotfolderFolder> folders = List.of(folder("a", "1"), folder("a", "2"), folder("a", "3"), folder("a", "4"), folder("b", "1"),
+                folder("b", "2"), folder("c", "1"));
+
+        assertEquals(List.of("a/1", "b/1", "c/1", "a/2", "b/2", "a/3", "a/4"), names(TemplateQuotas.interleave(folders, template -> 1)));
+        // a gets three turns per round
+        Map<String, Integer> weights = Map.of("a", 3, "b", 1);
+        assertEquals(List.of("a/1", "a/2", "b/1", "a/3", "a/4", "b/2"), names(TemplateQuotas.interleave(folders.subList(0, 6), weights::get)));
+    }
+
+    @Test
+    public void testQuota() throws IOException, ConfigurationException {
+        TemplateQuotas quotas = new TemplateQuotas(config());
+        assertTrue(quotas.hasQuota("limited"));
+        assertFalse(quotas.hasQuota("unlimited"));
+
+        // the first record is accepted even if it exceeds the megabytes
+        assertTrue(quotas.tryAcquire("limited", 15 * MEGABYTE));
+        assertFalse(quotas.tryAcquire("limited", MEGABYTE));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(quotas.tryAcquire("unlimited", 15 * MEGABYTE));
+        }
+    }
+
+    @Test
+    public void testProcessQuota() throws IOException, ConfigurationException {
+        TemplateQuotas quotas = new TemplateQuotas(config());
+        assertTrue(quotas.tryAcquire("limited", 0));
+        assertTrue(quotas.tryAcquire("limited", 0));
+        assertFalse(quotas.tryAcquire("limited", 0));
+    }
+
+    private HotfolderPluginConfig config() throws IOException, ConfigurationException {
+        Path configFile = tempFolder.getRoot().toPath().resolve("config.xml");
+        Files.writeString(configFile, "<config_plugin>"
+                + "<config><template>limited</template><quota><processes>2</processes><megabytes>10</megabytes></quota></config>"
+                + "<config><template>unlimited</template></config>"
+                + "</config_plugin>", StandardCharsets.UTF_8);
+        return new HotfolderPluginConfig(new XMLConfiguration(configFile.toFile()));
+    }
+
+    private HotfolderFolder folder(String templateName, String projectName) throws IOException {
+        Path projectFolder = tempFolder.getRoot().toPath().resolve(templateName).resolve(projectName);
+        Files.createDirectories(projectFolder);
+        return new HotfolderFolder(projectFolder, templateName, new NIOFileUtils());
+    }
+
+    private List<String> names(List<HotfolderFolder> folders) {
+        return folders.stream()
+                .map(folder -> folder.getTemplateName() + "/" + folder.getProjectFolder().getFileName())
+                .collect(Collectors.toList());
+    }
+
+}
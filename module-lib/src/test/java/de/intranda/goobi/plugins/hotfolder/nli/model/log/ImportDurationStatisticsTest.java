@@ -0,0 +1,66 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.log;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImportDurationStatisticsTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testPredictWithoutImports() {
+        ImportDurationStatistics statistics = ImportDurationStatistics.load(tempFolder.getRoot().toPath());
+        assertEquals(-1, statistics.predict("template", 10, 100));
+    }
+
+    @Test
+    public void testPredictSeparatesRecordsAndSizes() {
+        ImportDurationStatistics statistics = ImportDurationStatistics.load(tempFolder.getRoot().toPath());
+        // 1000 ms per record and 10 ms per megabyte
+        statistics.add("template", 10, 100, 11000);
+        statistics.add("template", 5, 1000, 15000);
+        statistics.add("template", 20, 50, 20500);
+        assertEquals(12000, statistics.predict("template", 2, 1000));
+        assertEquals(-1, statistics.predict("other", 2, 1000));
+    }
+
+    @Test
+    public void testPredictFallsBackToDurationPerRecord() {
+        ImportDurationStatistics statistics = ImportDurationStatistics.load(tempFolder.getRoot().toPath());
+        statistics.add("template", 4, 0, 2000);
+        assertEquals(5000, statistics.predict("template", 10, 0));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        Path hotfolder = tempFolder.getRoot().toPath();
+        ImportDurationStatistics statistics = ImportDurationStatistics.load(hotfolder);
+        statistics.add("template", 4, 0, 2000);
+        statistics.save();
+        assertEquals(5000, ImportDurationStatistics.load(hotfolder).predict("template", 10, 0));
+    }
+
+    @Test
+    public void testSaveKeepsImportsOfOtherRuns() throws IOException {
+        Path hotfolder = tempFolder.getRoot().toPath();
+        // two runs, e.g. on different nodes, that loaded the statistics at the same time
+        ImportDurationStatistics first = ImportDurationStatistics.load(hotfolder);
+        ImportDurationStatistics second = ImportDurationStatistics.load(hotfolder);
+        first.add("template", 4, 0, 2000);
+        first.save();
+        second.add("template", 4, 0, 6000);
+        second.save();
+
+        // the average of both imports
+        assertEquals(10000, ImportDurationStatistics.load(hotfolder).predict("template", 10, 0));
+        assertEquals(10000, second.predict("template", 10, 0));
+    }
+
+}
@@ -0,0 +1,120 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.log;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares finding the runs of a large lastRunResults.json that are younger than the allowed time difference with the {@link LegacyRunResultsReader}
+ * against mapping the whole file at once. The generated file has about 100 MB, one run per hour with 1000 results each, and the cutoff keeps the
+ * newest 24 runs. Run with -Xmx256m to see that the streaming reader does not depend on the size of the file. Run the main method or use the JMH
+ * runner of your IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LegacyRunResultsBenchmark {
+
+    private static final int RESULTS_PER_RUN = 1000;
+
+    @Param({ "100" })
+    private int sizeInMegabytes;
+
+    private Path legacyFile;
+    private LocalDateTime cutoff;
+
+    @Setup
+    public void setup() throws IOException {
+        legacyFile = Files.createTempFile("lastRunResults", ".json");
+        LocalDateTime now = LocalDateTime.now();
+        cutoff = now.minusHours(24);
+        long targetSize = sizeInMegabytes * 1024L * 1024L;
+        ObjectMapper mapper = new ObjectMapper();
+        try (BufferedWriter writer = Files.newBufferedWriter(legacyFile, StandardCharsets.UTF_8)) {
+            writer.write("[");
+            long written = 0;
+            for (int run = 0; written < targetSize; run++) {
+                String timestamp = now.minusHours(run).format(GUIImportResult.getFormatter());
+                StringBuilder sb = new StringBuilder(run == 0 ? "[" : ",\n[");
+                for (int i = 0; i < RESULTS_PER_RUN; i++) {
+                    GUIImportResult result = new GUIImportResult();
+                    result.setImportFileName("/opt/digiverso/goobi/hotfolder/Audio_and_Video/Reuploads-Audio/99003783812020" + run + "_" + i);
+                    result.setErrorMessage(i % 10 == 0 ? "Error creating process: the process title already exists" : null);
+                    result.setTimestamp(timestamp);
+                    sb.append(i == 0 ? "" : ",").append(mapper.writeValueAsString(result));
+                }
+                sb.append("]");
+                writer.write(sb.toString());
+                written += sb.length();
+            }
+            writer.write("]");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(legacyFile);
+    }
+
+    @Benchmark
+    public void streamingReader(Blackhole blackhole) throws IOException {
+        try (InputStream in = Files.newInputStream(legacyFile);
+                LegacyRunResultsReader reader = new LegacyRunResultsReader(in)) {
+            while (reader.nextRun()) {
+                GUIImportResult first = reader.nextResult();
+                if (LegacyRunResultsReader.isBefore(first, cutoff)) {
+                    break;
+                }
+                reader.resultsOfRun(first).forEachRemaining(blackhole::consume);
+            }
+        }
+    }
+
+    @Benchmark
+    public void mapWholeFile(Blackhole blackhole) throws IOException {
+        try (InputStream in = Files.newInputStream(legacyFile)) {
+            List<List<GUIImportResult>> runs = new ObjectMapper().readValue(in, new TypeReference<List<List<GUIImportResult>>>() {
+            });
+            for (List<GUIImportResult> run : runs) {
+                if (LegacyRunResultsReader.isBefore(run.isEmpty() ? null : run.get(0), cutoff)) {
+                    break;
+                }
+                run.forEach(blackhole::consume);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LegacyRunResultsBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,189 @@
+package de.intranda.goobi.plugins.hotfolder.nli.model.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RunResultsStoreTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder(new File("src/test").getAbsoluteFile());
+
+    private Path hotfolderPath;
+    private RunResultsStore store;
+
+    @Before
+    public void setup() throws IOException {
+        hotfolderPath = tempFolder.newFolder("hotfolder").toPath();
+        store = new RunResultsStore(hotfolderPath);
+    }
+
+    @Test
+    public void testRetentionByNumber() throws IOException {
+        store.append(List.of(result("a", null)), 2, null);
+        store.append(List.of(result("b", "error"), result("c", null)), 2, null);
+        store.append(List.of(result("d", null)), 2, null);
+
+        List<RunResultsStore.RunInfo> runs = store.getRuns();
+        assertEquals(2, runs.size());
+        assertEquals("d", store.readRun(runs.get(0)).get(0).getImportFileName());
+        assertEquals(2, runs.get(1).getNumberOfResults());
+        assertEquals("error", store.readRun(runs.get(1)).get(0).getErrorMessage());
+        assertEquals(2, countSegments());
+    }
+
+    @Test
+    public void testRetentionByAge() throws IOException {
+        store.append(List.of(result("a", null)), 1, Duration.ofHours(1));
+        store.append(List.of(result("b", null)), 1, Duration.ofHours(1));
+        assertEquals(2, store.getRuns().size());
+
+        // the new run is kept even if all runs are too old
+        store.append(List.of(result("c", null)), 1, Duration.ZERO);
+        assertEquals(1, store.getRuns().size());
+        assertEquals(1, countSegments());
+    }
+
+    @Test
+    public void testMigrationOfLegacyResults() throws IOException {
+        String timestamp = LocalDateTime.now().minusHours(2).format(GUIImportResult.getFormatter());
+        String legacy = "[[{\"importFileName\":\"new\",\"errorMessage\":null,\"timestamp\":\"" + timestamp + "\"}],\n"
+                + "[{\"importFileName\":\"old1\",\"errorMessage\":\"failed\",\"timestamp\":\"" + timestamp + "\"},"
+                + "{\"importFileName\":\"old2\",\"errorMessage\":null,\"timestamp\":\"" + timestamp + "\"}]]";
+        Path legacyFile = hotfolderPath.resolve(RunResultsStore.LEGACY_RESULTS_FILENAME);
+        Files.writeString(legacyFile, legacy, StandardCharsets.UTF_8);
+
+        store.append(List.of(result("current", null)), 10, null);
+
+        assertFalse(Files.exists(legacyFile));
+        List<RunResultsStore.RunInfo> runs = store.getRuns();
+        assertEquals(3, runs.size());
+        assertEquals("current", store.readRun(runs.get(0)).get(0).getImportFileName());
+        assertEquals("new", store.readRun(runs.get(1)).get(0).getImportFileName());
+        assertEquals("failed", store.readRun(runs.get(2)).get(0).getErrorMessage());
+        assertTrue(runs.get(1).getTime() > runs.get(2).getTime());
+    }
+
+    @Test
+    public void testMigrationStopsAtRetentionLimit() throws IOException {
+        String recent = LocalDateTime.now().minusHours(1).format(GUIImportResult.getFormatter());
+        String old = LocalDateTime.now().minusHours(5).format(GUIImportResult.getFormatter());
+        String legacy = "[[{\"importFileName\":\"recent\",\"timestamp\":\"" + recent + "\"}],\n"
+                + "[{\"importFileName\":\"old\",\"timestamp\":\"" + old + "\"}],\n"
+                // everything after the cutoff is not read at all
+                + "[{\"importFileName\":\"broken\",";
+        Path legacyFile = hotfolderPath.resolve(RunResultsStore.LEGACY_RESULTS_FILENAME);
+        Files.writeString(legacyFile, legacy, StandardCharsets.UTF_8);
+
+        store.append(List.of(result("current", null)), 10, Duration.ofHours(3));
+
+        List<RunResultsStore.RunInfo> runs = store.getRuns();
+        assertEquals(2, runs.size());
+        assertEquals("recent", store.readRun(runs.get(1)).get(0).getImportFileName());
+        assertEquals(2, countSegments());
+    }
+
+    @Test
+    public void testMigrationOfCorruptLegacyResults() throws IOException {
+        String timestamp = LocalDateTime.now().format(GUIImportResult.getFormatter());
+        String legacy = "[[{\"importFileName\":\"first\",\"timestamp\":\"" + timestamp + "\"}],\n"
+                + "[{\"importFileName\":\"second\",\"timestamp\":\"" + timestamp + "\"},{\"importFileName\":";
+        Path legacyFile = hotfolderPath.resolve(RunResultsStore.LEGACY_RESULTS_FILENAME);
+        Files.writeString(legacyFile, legacy, StandardCharsets.UTF_8);
+
+        store.append(List.of(result("current", null)), 10, null);
+
+        // the complete runs are kept, the incomplete one is dropped without leaving a temporary file
+        assertFalse(Files.exists(legacyFile));
+        List<RunResultsStore.RunInfo> runs = store.getRuns();
+        assertEquals(2, runs.size());
+        assertEquals("first", store.readRun(runs.get(1)).get(0).getImportFileName());
+        try (Stream<Path> files = Files.list(hotfolderPath.resolve(RunResultsStore.RESULTS_FOLDER_NAME))) {
+            assertTrue(files.noneMatch(f -> f.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    public void testIndexIsRebuilt() throws IOException {
+        store.append(List.of(result("a", null)), 10, null);
+        store.append(List.of(result("b", null)), 10, null);
+        Files.delete(hotfolderPath.resolve(RunResultsStore.RESULTS_FOLDER_NAME).resolve("index.json"));
+
+        List<RunResultsStore.RunInfo> runs = new RunResultsStore(hotfolderPath).getRuns();
+        assertEquals(2, runs.size());
+        assertEquals("b", store.readRun(runs.get(0)).get(0).getImportFileName());
+        assertEquals(1, runs.get(0).getNumberOfResults());
+    }
+
+    @Test
+    public void testConcurrentAppends() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> appends = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String name = "run" + i;
+                // every run uses its own store, like the runs of different nodes
+                appends.add(executor.submit(() -> {
+                    new RunResultsStore(hotfolderPath).append(List.of(result(name, null)), 10, null);
+                    return null;
+                }));
+            }
+            for (Future<?> append : appends) {
+                append.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(8, store.getRuns().size());
+        assertEquals(8, countSegments());
+        try (Stream<Path> files = Files.list(hotfolderPath.resolve(RunResultsStore.RESULTS_FOLDER_NAME))) {
+            assertTrue(files.noneMatch(f -> f.getFileName().toString().endsWith(".tmp") || f.getFileName().toString().endsWith(".lock")));
+        }
+    }
+
+    @Test
+    public void testUnlistedSegmentsAreDeleted() throws IOException {
+        store.append(List.of(result("a", null)), 10, null);
+        // left by a run that failed before it wrote the index
+        Files.writeString(hotfolderPath.resolve(RunResultsStore.RESULTS_FOLDER_NAME).resolve("run-1-0.jsonl"), "", StandardCharsets.UTF_8);
+
+        store.append(List.of(result("b", null)), 10, null);
+        assertEquals(2, store.getRuns().size());
+        assertEquals(2, countSegments());
+    }
+
+    private long countSegments() throws IOException {
+        try (Stream<Path> files = Files.list(hotfolderPath.resolve(RunResultsStore.RESULTS_FOLDER_NAME))) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".jsonl")).count();
+        }
+    }
+
+    private static GUIImportResult result(String importFileName, String errorMessage) {
+        GUIImportResult result = new GUIImportResult();
+        result.setImportFileName(importFileName);
+        result.setErrorMessage(errorMessage);
+        result.setTimestamp(LocalDateTime.now().format(GUIImportResult.getFormatter()));
+        return result;
+    }
+
+}